@@ -0,0 +1,21 @@
+#!/bin/sh
+# Compila el servidor sin pantalla en dist/connectdots-server.jar y genera el archivo AppCDS dist/server.jsa.
+# El servidor no necesita JavaFX ni bibliotecas de lib/: GameData se codifica con GameDataCodec.
+# VectorBoardEvaluator compila contra jdk.incubator.vector; al ejecutar, BoardBatch solo lo usa si la JVM
+# arranca con --add-modules jdk.incubator.vector y, si no, evalúa los tableros con el camino escalar.
+set -e
+cd "$(dirname "$0")/.."
+
+rm -rf build/server
+mkdir -p build/server dist
+SOURCES=$(ls src/*.java | grep -v -e 'src/Server.java' -e 'src/Client.java')
+javac -encoding UTF-8 --add-modules jdk.incubator.vector -d build/server $SOURCES
+cp -r src/META-INF build/server/
+jar --create --file dist/connectdots-server.jar --main-class ServerMain -C build/server .
+
+# Ejecución de entrenamiento: se arranca el servidor, se juega una jugada y al cerrar el proceso
+# la JVM guarda las clases cargadas en el archivo compartido.
+java -cp dist/connectdots-server.jar StartupBenchmark 1 -- \
+    java -XX:ArchiveClassesAtExit=dist/server.jsa -jar dist/connectdots-server.jar
+
+echo "Listo. Arranque con: java -XX:SharedArchiveFile=dist/server.jsa -jar dist/connectdots-server.jar"
@@ -0,0 +1,30 @@
+#!/bin/sh
+# Levanta un clúster de prueba en este equipo sobre loopback: N nodos de juego y una pasarela en el puerto 12345.
+# Uso: scripts/cluster-local.sh [nodos]   (Ctrl+C detiene todos los procesos)
+set -e
+cd "$(dirname "$0")/.."
+NODES=${1:-3}
+if [ ! -f dist/connectdots-server.jar ]; then
+    ./scripts/build-server.sh
+fi
+CP=dist/connectdots-server.jar
+SEED=127.0.0.1:14001
+PIDS=""
+
+i=1
+while [ "$i" -le "$NODES" ]; do
+    java -cp "$CP" -Dconnectdots.nodeId=node-$i -Dconnectdots.port=$((13000 + i)) \
+        -Dconnectdots.gossipPort=$((14000 + i)) -Dconnectdots.seeds=$SEED \
+        -Dconnectdots.adminPort=$((15000 + i)) -Dconnectdots.replayDir=replays/node-$i \
+        ClusterMain node &
+    PIDS="$PIDS $!"
+    i=$((i + 1))
+done
+
+java -cp "$CP" -Dconnectdots.nodeId=gateway-1 -Dconnectdots.port=12345 \
+    -Dconnectdots.gossipPort=14000 -Dconnectdots.seeds=$SEED \
+    ClusterMain gateway &
+PIDS="$PIDS $!"
+
+trap 'kill $PIDS 2>/dev/null' INT TERM EXIT
+wait
@@ -0,0 +1,13 @@
+#!/bin/sh
+# Genera la imagen nativa del servidor sin pantalla con GraalVM (native-image en el PATH).
+# La configuración se toma de src/META-INF/native-image/connectdots-server dentro del jar.
+set -e
+cd "$(dirname "$0")/.."
+
+if [ ! -f dist/connectdots-server.jar ]; then
+    ./scripts/build-server.sh
+fi
+native-image -jar dist/connectdots-server.jar -o dist/connectdots-server
+
+echo "Listo. Comparar arranque con:"
+echo "  java -cp dist/connectdots-server.jar StartupBenchmark 10 -- dist/connectdots-server"
@@ -0,0 +1,14 @@
+#!/bin/sh
+# Compara el arranque del servidor con la JVM normal, con AppCDS y, si existe, con la imagen nativa.
+set -e
+cd "$(dirname "$0")/.."
+RUNS=${1:-10}
+
+echo "== JVM =="
+java -cp dist/connectdots-server.jar StartupBenchmark "$RUNS" -- java -jar dist/connectdots-server.jar
+echo "== JVM + AppCDS =="
+java -cp dist/connectdots-server.jar StartupBenchmark "$RUNS" -- java -XX:SharedArchiveFile=dist/server.jsa -jar dist/connectdots-server.jar
+if [ -x dist/connectdots-server ]; then
+    echo "== Imagen nativa =="
+    java -cp dist/connectdots-server.jar StartupBenchmark "$RUNS" -- dist/connectdots-server
+fi
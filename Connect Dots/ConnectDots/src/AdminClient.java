@@ -0,0 +1,71 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Cliente del protocolo de administración de AdminServer. Lo usa la consola JavaFX para controlar un
+ * servidor que corre sin pantalla, en el mismo equipo o en otro.
+ */
+public class AdminClient {
+    private final String host; // Dirección de la interfaz de administración
+    private final int port; // Puerto de administración
+    private Socket socket; // Conexión abierta con el servidor
+    private BufferedReader in;
+    private PrintWriter out;
+
+    public AdminClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Envía un comando y espera la respuesta completa. Si la conexión se cayó, se vuelve a abrir una vez.
+     *
+     * @param command Comando a enviar.
+     * @return Respuesta del servidor.
+     * @throws IOException Si el servidor no responde.
+     */
+    public synchronized String send(String command) throws IOException {
+        try {
+            return exchange(command);
+        } catch (IOException e) {
+            close();
+            return exchange(command);
+        }
+    }
+
+    private String exchange(String command) throws IOException {
+        if (socket == null) {
+            socket = new Socket(host, port);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out = new PrintWriter(socket.getOutputStream(), true);
+        }
+        out.println(command);
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (AdminServer.END.equals(line)) {
+                return response.toString();
+            }
+            response.append(line).append('\n');
+        }
+        throw new IOException("El servidor cerró la conexión de administración");
+    }
+
+    /**
+     * Cierra la conexión de administración.
+     */
+    public synchronized void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ya estaba cerrada
+            }
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Interfaz de administración y métricas del servidor. Atiende un protocolo de texto por líneas:
+ * cada comando recibe una respuesta de una o más líneas terminada con una línea que solo contiene ".".
+ *
+ * Comandos: status, metrics, results, leaderboard [N], players N, tournament [FORMATO JUGADOR...], restart, stop.
+ *
+ * tournament FORMATO JUGADOR... empieza un torneo en salas del servidor con jugadores inscritos (mensaje register)
+ * y responde enseguida; tournament sin argumentos lista a los inscritos y el estado o la tabla del último torneo.
+ */
+public class AdminServer {
+    public static final String END = "."; // Marca de fin de respuesta
+
+    private static final int TOURNAMENT_THREADS = 2; // Hilos que crean las salas de los torneos
+    private static final int TOURNAMENT_QUEUE = 1024; // Salas de torneo que pueden esperar a un hilo
+
+    private final GameServer server; // Servidor administrado
+    private final ServerConfig config; // Dirección y puerto de administración
+    private ServerSocket adminSocket; // Socket de administración
+    private TournamentScheduler tournaments; // Organizador de los torneos (se crea en start)
+    private volatile CompletableFuture<List<TournamentScheduler.Standing>> lastTournament; // Último torneo empezado
+    private volatile int tournamentCount = 0; // Torneos empezados desde que se abrió la administración
+
+    public AdminServer(GameServer server, ServerConfig config) {
+        this.server = server;
+        this.config = config;
+    }
+
+    /**
+     * Abre el puerto de administración e inicia el hilo que atiende a las consolas.
+     *
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public void start() throws IOException {
+        adminSocket = new ServerSocket(config.getAdminPort(), 50, InetAddress.getByName(config.getAdminHost()));
+        tournaments = new TournamentScheduler(TOURNAMENT_THREADS, TOURNAMENT_QUEUE, server.tournamentRunner());
+        Thread adminThread = new Thread(() -> {
+            while (!adminSocket.isClosed()) {
+                try {
+                    Socket console = adminSocket.accept();
+                    Thread consoleThread = new Thread(() -> serve(console), "admin-console");
+                    consoleThread.setDaemon(true);
+                    consoleThread.start();
+                } catch (IOException e) {
+                    if (!adminSocket.isClosed()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }, "admin");
+        adminThread.setDaemon(true);
+        adminThread.start();
+    }
+
+    /**
+     * Cierra el puerto de administración.
+     */
+    public void stop() {
+        if (tournaments != null) {
+            tournaments.shutdown(); // Las salas ya abiertas siguen en el servidor hasta que terminan
+        }
+        try {
+            if (adminSocket != null) {
+                adminSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Atiende los comandos de una consola hasta que se desconecta.
+     */
+    private void serve(Socket console) {
+        try (Socket socket = console;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+            String command;
+            while ((command = in.readLine()) != null) {
+                out.print(execute(command.trim()));
+                out.println(END);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // La consola se desconectó
+        }
+    }
+
+    /**
+     * Ejecuta un comando de administración.
+     *
+     * @param command Comando recibido.
+     * @return Respuesta, con cada línea terminada en salto de línea.
+     */
+    String execute(String command) {
+        String[] parts = command.split("\\s+");
+        try {
+            switch (parts[0]) {
+                case "status":
+                    return "running " + server.isRunning() + "\nplayers " + server.getDesiredPlayers() + "\n";
+                case "metrics":
+                    return ServerMetrics.format();
+                case "results":
+                    return server.getLastResults();
+                case "leaderboard":
+                    return server.getLeaderboard().format(parts.length > 1 ? Integer.parseInt(parts[1]) : 10);
+                case "tournament":
+                    return parts.length > 1 ? tournament(parts[1], Arrays.asList(parts).subList(2, parts.length)) : tournamentStatus();
+                case "players":
+                    server.setDesiredPlayers(Integer.parseInt(parts[1]));
+                    return "ok\n";
+                case "start":
+                    server.start();
+                    return "ok\n";
+                case "restart":
+                    server.restart();
+                    return "ok\n";
+                case "stop":
+                    server.stop();
+                    return "ok\n";
+                default:
+                    return "error comando desconocido: " + parts[0] + "\n";
+            }
+        } catch (IOException | RuntimeException e) {
+            return "error " + e.getMessage() + "\n";
+        }
+    }
+
+    /**
+     * Empieza un torneo con jugadores inscritos. No espera a que termine: las partidas se juegan en salas del
+     * servidor al ritmo de los jugadores y la tabla se consulta después con tournament.
+     *
+     * @param format  Formato: round_robin, swiss o single_elimination.
+     * @param players Nombres de los jugadores inscritos, en orden de siembra.
+     * @return Confirmación con el número del torneo.
+     */
+    private String tournament(String format, List<String> players) {
+        TournamentScheduler.Format parsed = TournamentScheduler.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        List<String> missing = new ArrayList<>(players);
+        missing.removeAll(server.getRegisteredPlayers());
+        if (!missing.isEmpty()) {
+            return "error jugadores no inscritos: " + String.join(" ", missing) + "\n";
+        }
+        lastTournament = tournaments.run(players, parsed);
+        return "ok torneo " + ++tournamentCount + "\n";
+    }
+
+    /**
+     * @return Jugadores inscritos y estado del último torneo: en curso, su tabla final o el error que lo cortó.
+     */
+    private String tournamentStatus() {
+        StringBuilder text = new StringBuilder("inscritos ").append(String.join(" ", server.getRegisteredPlayers())).append('\n');
+        CompletableFuture<List<TournamentScheduler.Standing>> last = lastTournament;
+        if (last == null) {
+            return text.append("sin torneos\n").toString();
+        }
+        text.append("torneo ").append(tournamentCount).append(' ');
+        if (!last.isDone()) {
+            return text.append("en curso\n").toString();
+        }
+        List<TournamentScheduler.Standing> standings;
+        try {
+            standings = last.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return text.append("error ").append(cause.getMessage()).append('\n').toString();
+        }
+        text.append("terminado\n");
+        int place = 1;
+        for (TournamentScheduler.Standing standing : standings) {
+            text.append(place++).append(". ").append(standing).append('\n');
+        }
+        return text.toString();
+    }
+}
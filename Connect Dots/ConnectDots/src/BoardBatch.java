@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Lote de tableros para evaluar muchas posiciones de una vez (el bot del servidor, los clientes simulados). Los datos se
+ * guardan como estructura de arreglos: un arreglo con la máscara de líneas de cada tablero y un arreglo por cada
+ * resultado, de modo que evaluate recorre memoria contigua y puede procesar varios tableros por instrucción.
+ *
+ * Por tablero se calculan:
+ * - completed: máscara de los cuadrados cerrados (bit i = cuadrado i, como GameRoom.boxIndex).
+ * - legal: líneas libres.
+ * - capture: líneas que cierran un cuadrado con tres lados (jugadas que capturan).
+ * - safe: líneas libres que no tocan ningún cuadrado con dos lados, o sea que no le dejan un cuadrado con tres
+ *   lados al rival.
+ * - sides[k]: cantidad de cuadrados con exactamente k lados (0 a 4); sides[3] son los capturables y
+ *   sides[4] los cerrados.
+ *
+ * evaluate usa la API de vectores (VectorBoardEvaluator) si el módulo jdk.incubator.vector está cargado
+ * (java --add-modules jdk.incubator.vector ...) y, si no, el recorrido escalar de evaluateScalar, que da los
+ * mismos resultados. Con -Dconnectdots.vector=false se fuerza el escalar.
+ */
+public final class BoardBatch {
+    public static final int SIDE_COUNTS = 5; // Un cuadrado tiene de 0 a 4 lados dibujados
+    private static final boolean VECTOR = vectorAvailable(); // Se usa VectorBoardEvaluator
+
+    private int size = 0; // Tableros cargados
+    private int[] edges; // Máscara de líneas de cada tablero
+    private int[] completed; // Cuadrados cerrados
+    private int[] legal; // Líneas libres
+    private int[] capture; // Líneas que cierran un cuadrado
+    private int[] safe; // Líneas libres que no dejan un cuadrado con tres lados
+    private final int[][] sides = new int[SIDE_COUNTS][]; // sides[k][i]: cuadrados con k lados en el tablero i
+
+    /**
+     * @param capacity Tableros que caben sin agrandar los arreglos.
+     */
+    public BoardBatch(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Agrega un tablero al lote.
+     *
+     * @param boardEdges Máscara de líneas dibujadas (GameRoom.getEdges o RoomStore.getEdges).
+     * @return Posición del tablero en el lote.
+     */
+    public int add(int boardEdges) {
+        if (size == edges.length) {
+            grow();
+        }
+        edges[size] = boardEdges & GameRoom.FULL_BOARD;
+        return size++;
+    }
+
+    /**
+     * Vacía el lote sin soltar los arreglos.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Evalúa todos los tableros del lote con la API de vectores si está disponible.
+     */
+    public void evaluate() {
+        if (VECTOR) {
+            VectorBoardEvaluator.evaluate(this);
+        } else {
+            evaluateScalar(0, size);
+        }
+    }
+
+    /**
+     * Evalúa un rango de tableros de uno en uno. Es el camino sin API de vectores y el que termina los tableros
+     * que no llenan un vector completo.
+     *
+     * @param from Primer tablero.
+     * @param to   Tablero siguiente al último.
+     */
+    public void evaluateScalar(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int board = edges[i];
+            int done = 0, captures = 0, danger = 0;
+            sides[0][i] = sides[1][i] = sides[2][i] = sides[3][i] = sides[4][i] = 0;
+            for (int box = 0; box < GameRoom.BOX_COUNT; box++) {
+                int mask = GameRoom.boxMask(box);
+                int count = Integer.bitCount(board & mask);
+                sides[count][i]++;
+                if (count == 4) {
+                    done |= 1 << box;
+                } else if (count == 3) {
+                    captures |= mask & ~board;
+                } else if (count == 2) {
+                    danger |= mask;
+                }
+            }
+            int free = ~board & GameRoom.FULL_BOARD;
+            completed[i] = done;
+            legal[i] = free;
+            capture[i] = captures;
+            safe[i] = free & ~danger;
+        }
+    }
+
+    /**
+     * @return true si evaluate usa la API de vectores.
+     */
+    public static boolean isVectorized() {
+        return VECTOR;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getEdges(int board) {
+        return edges[board];
+    }
+
+    public int getCompleted(int board) {
+        return completed[board];
+    }
+
+    public int getLegal(int board) {
+        return legal[board];
+    }
+
+    public int getCapture(int board) {
+        return capture[board];
+    }
+
+    public int getSafe(int board) {
+        return safe[board];
+    }
+
+    /**
+     * Líneas que conviene jugar: las que capturan; si no hay, las seguras; si tampoco, cualquier libre. Es el
+     * criterio del bot del servidor (GameServer) y de SimulatedClient.
+     *
+     * @param board Posición del tablero.
+     * @return Máscara de líneas, vacía solo si el tablero está lleno.
+     */
+    public int getPreferred(int board) {
+        int moves = capture[board];
+        if (moves == 0) {
+            moves = safe[board];
+        }
+        return moves != 0 ? moves : legal[board];
+    }
+
+    /**
+     * @param board Posición del tablero.
+     * @param count Lados dibujados (0 a 4).
+     * @return Cuadrados del tablero con exactamente esa cantidad de lados.
+     */
+    public int getSideCount(int board, int count) {
+        return sides[count][board];
+    }
+
+    // Acceso directo a los arreglos para VectorBoardEvaluator
+
+    int[] edgesArray() {
+        return edges;
+    }
+
+    int[] completedArray() {
+        return completed;
+    }
+
+    int[] legalArray() {
+        return legal;
+    }
+
+    int[] captureArray() {
+        return capture;
+    }
+
+    int[] safeArray() {
+        return safe;
+    }
+
+    int[] sidesArray(int count) {
+        return sides[count];
+    }
+
+    private void allocate(int capacity) {
+        edges = new int[capacity];
+        completed = new int[capacity];
+        legal = new int[capacity];
+        capture = new int[capacity];
+        safe = new int[capacity];
+        for (int k = 0; k < SIDE_COUNTS; k++) {
+            sides[k] = new int[capacity];
+        }
+    }
+
+    private void grow() {
+        int capacity = edges.length * 2;
+        edges = Arrays.copyOf(edges, capacity);
+        completed = Arrays.copyOf(completed, capacity);
+        legal = Arrays.copyOf(legal, capacity);
+        capture = Arrays.copyOf(capture, capacity);
+        safe = Arrays.copyOf(safe, capacity);
+        for (int k = 0; k < SIDE_COUNTS; k++) {
+            sides[k] = Arrays.copyOf(sides[k], capacity);
+        }
+    }
+
+    /**
+     * La API de vectores es un módulo en incubación: solo está si se pidió con --add-modules. Se revisa antes
+     * de tocar VectorBoardEvaluator para que, sin el módulo, esa clase nunca se cargue.
+     */
+    private static boolean vectorAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("connectdots.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorBoardEvaluator.lanes() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.SplittableRandom;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Compara la evaluación escalar de BoardBatch con la de VectorBoardEvaluator sobre tableros al azar con todas
+ * las densidades de líneas. Primero verifica que ambos caminos den los mismos resultados tablero por tablero;
+ * después calienta cada uno y mide el mejor de varias rondas en nanosegundos por tablero.
+ *
+ * Uso: java --add-modules jdk.incubator.vector BoardBatchBenchmark [tableros por lote] [rondas]
+ * (sin --add-modules solo se mide el escalar)
+ */
+public class BoardBatchBenchmark {
+    private static final int WARMUP_ROUNDS = 1000; // Evaluaciones del lote descartadas antes de medir
+    private static final int TIMED_PASSES = 5; // Se informa la mejor de estas mediciones
+
+    /**
+     * @param args Tableros por lote (por defecto 16384) y evaluaciones del lote por medición (2000).
+     */
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 16384;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        BoardBatch batch = new BoardBatch(boards);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < boards; i++) {
+            batch.add(randomBoard(random));
+        }
+        System.out.printf("%d tableros por lote, %d evaluaciones por medición%n", boards, rounds);
+
+        if (!BoardBatch.isVectorized()) {
+            System.out.println("API de vectores no disponible (falta --add-modules jdk.incubator.vector): solo escalar");
+            report("Escalar", measure(batch, false, rounds), boards, rounds, 0);
+            return;
+        }
+        System.out.printf("API de vectores: %d tableros por operación%n", VectorBoardEvaluator.lanes());
+
+        batch.evaluateScalar(0, boards);
+        int[][] expected = snapshot(batch);
+        VectorBoardEvaluator.evaluate(batch);
+        int[][] actual = snapshot(batch);
+        for (int field = 0; field < expected.length; field++) {
+            for (int i = 0; i < boards; i++) {
+                if (expected[field][i] != actual[field][i]) {
+                    System.out.printf("FALLA: tablero %d (líneas %x), campo %d: escalar %d, vectores %d%n",
+                            i, batch.getEdges(i), field, expected[field][i], actual[field][i]);
+                    System.exit(1);
+                }
+            }
+        }
+        System.out.println("Resultados iguales en ambos caminos");
+
+        long scalar = measure(batch, false, rounds);
+        long vector = measure(batch, true, rounds);
+        report("Escalar", scalar, boards, rounds, 0);
+        report("Vectores", vector, boards, rounds, scalar);
+    }
+
+    /**
+     * Tablero con cada línea dibujada con una probabilidad al azar, para cubrir desde el tablero vacío hasta el lleno.
+     */
+    private static int randomBoard(SplittableRandom random) {
+        int density = random.nextInt(GameRoom.EDGE_COUNT + 1);
+        int edges = 0;
+        for (int edge = 0; edge < GameRoom.EDGE_COUNT; edge++) {
+            if (random.nextInt(GameRoom.EDGE_COUNT) < density) {
+                edges |= 1 << edge;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * @return Mejor tiempo, en nanosegundos, de evaluar el lote la cantidad de rondas indicada.
+     */
+    private static long measure(BoardBatch batch, boolean vector, int rounds) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            evaluate(batch, vector);
+        }
+        long best = Long.MAX_VALUE;
+        for (int pass = 0; pass < TIMED_PASSES; pass++) {
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                evaluate(batch, vector);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void evaluate(BoardBatch batch, boolean vector) {
+        if (vector) {
+            VectorBoardEvaluator.evaluate(batch);
+        } else {
+            batch.evaluateScalar(0, batch.size());
+        }
+    }
+
+    private static int[][] snapshot(BoardBatch batch) {
+        int[][] fields = new int[4 + BoardBatch.SIDE_COUNTS][batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            fields[0][i] = batch.getCompleted(i);
+            fields[1][i] = batch.getLegal(i);
+            fields[2][i] = batch.getCapture(i);
+            fields[3][i] = batch.getSafe(i);
+            for (int k = 0; k < BoardBatch.SIDE_COUNTS; k++) {
+                fields[4 + k][i] = batch.getSideCount(i, k);
+            }
+        }
+        return fields;
+    }
+
+    private static void report(String name, long nanos, int boards, int rounds, long baseline) {
+        double perBoard = (double) nanos / ((long) boards * rounds);
+        System.out.printf("%-10s %.2f ns/tablero  %,.0f tableros/s%s%n", name, perBoard, 1e9 / perBoard,
+                baseline > 0 ? String.format("  (%.2fx)", (double) baseline / nanos) : "");
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Lector de líneas con un límite de bytes pendientes. A diferencia de BufferedReader, que acumula sin límite
+ * una línea que nunca termina, este lector falla en cuanto la línea supera el límite, así que un cliente no
+ * puede hacer que el servidor guarde más de maxLineBytes por conexión.
+ */
+public class BoundedLineReader {
+    private static final int BUFFER_SIZE = 4096; // Bytes que se leen del socket de una vez
+
+    private final InputStream in; // Flujo de entrada
+    private final int maxLineBytes; // Bytes máximos de una línea sin terminar
+    private final byte[] buffer = new byte[BUFFER_SIZE]; // Bytes leídos y aún no consumidos
+    private int position = 0; // Siguiente byte por consumir en buffer
+    private int limit = 0; // Fin de los bytes válidos en buffer
+    private byte[] line = new byte[256]; // Línea en construcción
+    private int lineLength = 0; // Bytes de la línea en construcción
+
+    /**
+     * Excepción lanzada cuando una línea supera el límite.
+     */
+    public static class LineTooLongException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public LineTooLongException(int maxLineBytes) {
+            super("La línea supera " + maxLineBytes + " bytes");
+        }
+    }
+
+    /**
+     * @param in           Flujo de entrada.
+     * @param maxLineBytes Bytes máximos de una línea sin contar el salto de línea.
+     */
+    public BoundedLineReader(InputStream in, int maxLineBytes) {
+        this.in = in;
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    /**
+     * Lee la siguiente línea sin el salto de línea ("\n" o "\r\n").
+     *
+     * @return Línea leída o null al final del flujo.
+     * @throws IOException Si falla la lectura o la línea supera el límite.
+     */
+    public String readLine() throws IOException {
+        int length = readLineBytes();
+        return length < 0 ? null : lineString(length);
+    }
+
+    /**
+     * Lee la siguiente línea sin crear objetos. Los bytes quedan en lineBytes() hasta la siguiente lectura.
+     *
+     * @return Cantidad de bytes de la línea sin el salto de línea, o -1 al final del flujo.
+     * @throws IOException Si falla la lectura o la línea supera el límite.
+     */
+    public int readLineBytes() throws IOException {
+        while (true) {
+            while (position < limit) {
+                byte b = buffer[position++];
+                if (b == '\n') {
+                    int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                    lineLength = 0;
+                    return length;
+                }
+                if (lineLength == maxLineBytes) {
+                    throw new LineTooLongException(maxLineBytes);
+                }
+                if (lineLength == line.length) {
+                    byte[] bigger = new byte[Math.min(line.length * 2, maxLineBytes)];
+                    System.arraycopy(line, 0, bigger, 0, lineLength);
+                    line = bigger;
+                }
+                line[lineLength++] = b;
+            }
+            limit = in.read(buffer);
+            position = 0;
+            if (limit < 0) {
+                limit = 0;
+                if (lineLength == 0) {
+                    return -1;
+                }
+                int last = lineLength; // Última línea sin salto
+                lineLength = 0;
+                return last;
+            }
+        }
+    }
+
+    /**
+     * Indica si hay bytes para leer sin esperar: los que quedan en el buffer o los que el flujo informa con
+     * available. Una línea que llegó a medias puede hacer esperar a readLineBytes hasta que llegue el resto.
+     *
+     * @return true si hay bytes recibidos sin leer.
+     * @throws IOException Si falla la consulta al flujo.
+     */
+    public boolean ready() throws IOException {
+        return position < limit || in.available() > 0;
+    }
+
+    /**
+     * Bytes de la última línea leída con readLineBytes.
+     *
+     * @return Buffer interno; solo son válidos los primeros bytes indicados por readLineBytes.
+     */
+    public byte[] lineBytes() {
+        return line;
+    }
+
+    /**
+     * Convierte en texto la última línea leída con readLineBytes.
+     *
+     * @param length Cantidad de bytes de la línea.
+     * @return Texto de la línea.
+     */
+    public String lineString(int length) {
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,245 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Repite una sesión capturada por el servidor (captureDir, ver SessionCapture) contra un GameServer en este
+ * mismo proceso, conectado por LoopbackConnection para que la red no agregue ruido. Sirve para comparar dos
+ * versiones del servidor con el mismo tráfico real.
+ *
+ * Cada conexión capturada se abre, envía sus líneas y se cierra en el orden original. En modo "original" se
+ * respetan los tiempos de llegada; en modo "flat" se envía todo lo más rápido posible. En ambos, un mensaje o
+ * un cierre espera a que su conexión esté sentada y haya visto la secuencia de sala que tenía al capturarse, así las
+ * partidas se juegan igual. Los tokens de sesión son distintos en cada ejecución, de modo que los resume no se pueden repetir.
+ * En modo "flat" se desactivan los límites de tasa, que con el tiempo comprimido descartarían jugadas.
+ *
+ * Informa la latencia de las jugadas (desde que se envía la línea hasta que vuelve el eco del servidor con el
+ * color del cliente) en p50, p99, p99.9 y máximo, y el tiempo de CPU del proceso por jugada sin contar los
+ * hilos de esta herramienta.
+ *
+ * Uso: java CaptureReplay archivo.cdcap [original|flat] [servidor.properties]
+ */
+public class CaptureReplay {
+    private static final long GATE_TIMEOUT_MS = 1000; // Espera máxima por una secuencia que no llega (la repetición divergió)
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final AtomicLong driverCpuNanos = new AtomicLong(); // CPU de los hilos de esta herramienta
+
+    /**
+     * Conexión repetida: el extremo del cliente, el hilo que lee las respuestas y las jugadas sin eco.
+     */
+    private static final class Replayed implements Runnable {
+        private final LoopbackConnection connection;
+        private final MessageWriter out;
+        private final long[] pending = new long[GameRoom.EDGE_COUNT]; // Momento de envío de cada jugada sin eco (0 si no hay)
+        private final List<long[]> latencies; // Latencias medidas, compartidas entre conexiones
+        private String color; // Color del asiento
+        private int seenSequence = 0; // Secuencia más alta recibida
+        private boolean done = false; // El servidor cerró la conexión
+
+        Replayed(LoopbackConnection connection, List<long[]> latencies) {
+            this.connection = connection;
+            this.out = new MessageWriter(connection.getOutputStream());
+            this.latencies = latencies;
+        }
+
+        @Override
+        public void run() {
+            long[] mine = new long[1024];
+            int count = 0;
+            try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+                BufferedReader in = new BufferedReader(reader);
+                String line;
+                while ((line = in.readLine()) != null) {
+                    long now = System.nanoTime();
+                    GameData data = GameDataCodec.decode(line);
+                    synchronized (this) {
+                        if ("color".equals(data.getType())) {
+                            color = data.getColor();
+                            notifyAll();
+                        } else if ("line".equals(data.getType())) {
+                            int edge = GameRoom.edgeIndex(data.getStartX(), data.getStartY(), data.getEndX(), data.getEndY());
+                            if (data.getColor().equals(color) && pending[edge] != 0) {
+                                if (count == mine.length) {
+                                    mine = Arrays.copyOf(mine, count * 2);
+                                }
+                                mine[count++] = now - pending[edge];
+                            }
+                            pending[edge] = 0;
+                            seenSequence = Math.max(seenSequence, data.getSequence());
+                            notifyAll();
+                        }
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // Conexión cerrada
+            } finally {
+                synchronized (this) {
+                    done = true;
+                    notifyAll();
+                }
+                latencies.add(Arrays.copyOf(mine, count));
+                driverCpuNanos.addAndGet(threads.getCurrentThreadCpuTime());
+            }
+        }
+
+        /**
+         * Espera a que la conexión reciba su color y vea una secuencia.
+         *
+         * @return false si no llegó a tiempo.
+         */
+        synchronized boolean awaitSequence(int sequence) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GATE_TIMEOUT_MS);
+            while ((color == null || seenSequence < sequence) && !done) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return true;
+        }
+
+        /**
+         * Envía una línea capturada y, si es una jugada, anota el momento del envío.
+         */
+        void send(byte[] line, int length) {
+            int edge = MoveCodec.parseLine(line, length);
+            if (edge >= 0) {
+                synchronized (this) {
+                    pending[edge] = System.nanoTime();
+                }
+            }
+            out.send(line, 0, length);
+        }
+    }
+
+    /**
+     * @param args Archivo de captura, modo ("original" o "flat", por defecto "flat") y propiedades del servidor.
+     * @throws Exception Si no se puede leer la captura.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: java CaptureReplay archivo.cdcap [original|flat] [servidor.properties]");
+            System.exit(1);
+        }
+        boolean original = args.length > 1 && "original".equals(args[1]);
+        Properties properties = new Properties();
+        if (args.length > 2) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(args[2]))) {
+                properties.load(reader);
+            }
+        }
+        properties.setProperty("transport", "loopback");
+        properties.setProperty("captureDir", "");
+        properties.setProperty("replayDir", "");
+        if (!original) {
+            properties.setProperty("connectionRatePerSec", "0");
+            properties.setProperty("roomRatePerSec", "0");
+        }
+        GameServer server = new GameServer(ServerConfig.fromProperties(properties));
+
+        List<long[]> latencies = java.util.Collections.synchronizedList(new ArrayList<>());
+        Map<Integer, Replayed> open = new HashMap<>();
+        List<Thread> readers = new ArrayList<>();
+        long records = 0, moves = 0, diverged = 0;
+        com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // El servidor anuncia cada conexión y cada resultado
+        long cpuStart, mainCpuStart, start, elapsed, cpu;
+        try (SessionCapture.Reader capture = new SessionCapture.Reader(Paths.get(args[0]))) {
+            server.start();
+            cpuStart = os.getProcessCpuTime();
+            mainCpuStart = threads.getCurrentThreadCpuTime();
+            start = System.nanoTime();
+            while (capture.next()) {
+                records++;
+                if (original) {
+                    long wait;
+                    while ((wait = start + capture.getNanos() - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                Replayed replayed = open.get(capture.getClientId());
+                switch (capture.getKind()) {
+                    case SessionCapture.OPEN:
+                        LoopbackConnection[] pair = LoopbackConnection.pair();
+                        replayed = new Replayed(pair[0], latencies);
+                        open.put(capture.getClientId(), replayed);
+                        Thread reader = new Thread(replayed, "repeticion-" + capture.getClientId());
+                        reader.start();
+                        readers.add(reader);
+                        server.connect(pair[1]);
+                        break;
+                    case SessionCapture.MESSAGE:
+                        if (replayed == null) {
+                            break;
+                        }
+                        if (capture.getSequence() >= 0 && !replayed.awaitSequence(capture.getSequence())) {
+                            diverged++;
+                        }
+                        if (MoveCodec.parseLine(capture.getLine(), capture.getLength()) >= 0) {
+                            moves++;
+                        }
+                        replayed.send(capture.getLine(), capture.getLength());
+                        break;
+                    case SessionCapture.CLOSE:
+                        if (replayed != null) {
+                            if (capture.getSequence() >= 0 && !replayed.awaitSequence(capture.getSequence())) {
+                                diverged++;
+                            }
+                            open.remove(capture.getClientId());
+                            replayed.connection.close();
+                        }
+                        break;
+                    default:
+                        throw new IOException("Registro desconocido: " + capture.getKind());
+                }
+            }
+            for (Replayed replayed : open.values()) {
+                replayed.connection.close();
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            elapsed = System.nanoTime() - start;
+            cpu = os.getProcessCpuTime() - cpuStart - driverCpuNanos.get() - (threads.getCurrentThreadCpuTime() - mainCpuStart);
+        } finally {
+            server.stop();
+            System.setOut(console);
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%s: %d registros, %d conexiones, %d jugadas enviadas, %d con eco, %d esperas vencidas%n",
+                args[0], records, readers.size(), moves, all.length, diverged);
+        System.out.printf("Modo %s: %.3f s%n", original ? "original" : "flat", elapsed / 1e9);
+        if (all.length > 0) {
+            System.out.printf("Latencia por jugada (us): p50 %.1f  p99 %.1f  p99.9 %.1f  máx %.1f%n",
+                    percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, percentile(all, 0.999) / 1e3, all[all.length - 1] / 1e3);
+            System.out.printf("CPU del servidor por jugada: %.1f us%n", Math.max(0, cpu) / 1e3 / all.length);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
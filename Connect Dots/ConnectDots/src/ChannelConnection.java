@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Conexión sobre un SocketChannel bloqueante. Se usa para los sockets de dominio Unix (transport=unix): cuando
+ * el cliente o la pasarela corren en el mismo equipo que el servidor, el tráfico no pasa por la pila TCP.
+ *
+ * Los flujos leen y escriben el canal directamente. No se usa Channels.newInputStream porque mantiene el bloqueo
+ * del canal durante toda una lectura y el servidor no podría escribir en la conexión mientras su hilo espera
+ * la próxima línea. Cada flujo reutiliza el ByteBuffer que envuelve el último arreglo recibido; como el lector
+ * de líneas y el escritor de mensajes siempre pasan el mismo buffer, leer y escribir no crea objetos.
+ *
+ * En modo no bloqueante (setBlocking(false), lo usan los clientes simulados que mueve un solo hilo) read devuelve
+ * 0 si no hay datos y available lee por adelantado para informar los bytes listos; el servidor siempre usa el
+ * modo bloqueante, donde available devuelve 0 y no se lee nada por adelantado.
+ */
+public class ChannelConnection implements Connection {
+    private static final int READ_AHEAD_BYTES = 4096; // Bytes que available puede leer por adelantado
+
+    private final SocketChannel channel; // Canal conectado y bloqueante
+    private final String name; // Descripción del otro extremo
+    private final InputStream in = new ChannelInputStream();
+    private final OutputStream out = new ChannelOutputStream();
+
+    /**
+     * @param channel Canal conectado en modo bloqueante.
+     * @param name    Descripción del otro extremo, para los registros.
+     */
+    public ChannelConnection(SocketChannel channel, String name) {
+        this.channel = channel;
+        this.name = name;
+    }
+
+    /**
+     * Se conecta a un servidor que escucha en un socket de dominio Unix.
+     *
+     * @param path Ruta del socket.
+     * @return Conexión abierta.
+     * @throws IOException Si no hay nadie escuchando en la ruta.
+     */
+    public static ChannelConnection openUnix(Path path) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(path));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new ChannelConnection(channel, "unix:" + path);
+    }
+
+    /**
+     * Se conecta a un servidor TCP. Sirve a los clientes que necesitan el modo no bloqueante.
+     *
+     * @param host Equipo del servidor.
+     * @param port Puerto del servidor.
+     * @return Conexión abierta, sin retraso de Nagle.
+     * @throws IOException Si no se puede conectar.
+     */
+    public static ChannelConnection openTcp(String host, int port) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new ChannelConnection(channel, host + ":" + port);
+    }
+
+    /**
+     * Cambia el modo del canal.
+     *
+     * @param blocking false para que las lecturas no esperen datos.
+     * @throws IOException Si no se puede cambiar el modo.
+     */
+    public void setBlocking(boolean blocking) throws IOException {
+        channel.configureBlocking(blocking);
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !channel.isOpen();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return name;
+    }
+
+    private final class ChannelInputStream extends InputStream {
+        private byte[] array; // Arreglo envuelto por buffer
+        private ByteBuffer buffer;
+        private ByteBuffer ahead; // Bytes leídos por available en modo no bloqueante (null si nunca hizo falta)
+        private boolean ended = false; // available encontró el final del flujo
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (ahead != null && ahead.hasRemaining()) {
+                int n = Math.min(len, ahead.remaining());
+                ahead.get(b, off, n);
+                return n;
+            }
+            if (ended) {
+                return -1;
+            }
+            if (b != array) {
+                array = b;
+                buffer = ByteBuffer.wrap(b);
+            }
+            buffer.limit(off + len).position(off);
+            return channel.read(buffer);
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (channel.isBlocking()) {
+                return 0; // Averiguarlo obligaría a esperar datos
+            }
+            if (ahead == null) {
+                ahead = ByteBuffer.allocate(READ_AHEAD_BYTES).flip();
+            }
+            if (!ahead.hasRemaining() && !ended) {
+                ahead.clear();
+                ended = channel.read(ahead) < 0;
+                ahead.flip();
+            }
+            return ahead.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            ChannelConnection.this.close();
+        }
+    }
+
+    private final class ChannelOutputStream extends OutputStream {
+        private byte[] array; // Arreglo envuelto por buffer
+        private ByteBuffer buffer;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (b != array) {
+                array = b;
+                buffer = ByteBuffer.wrap(b);
+            }
+            buffer.limit(off + len).position(off);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ChannelConnection.this.close();
+        }
+    }
+}
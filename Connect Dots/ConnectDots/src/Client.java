@@ -21,6 +21,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 
 public class Client extends Application {
 
@@ -32,8 +36,22 @@ public class Client extends Application {
     private static final int GRID_SIZE = 4;
     private static final int POINT_RADIUS = 10;
 
-    private Socket socket; // Socket para la comunicación con el servidor
-    private PrintWriter out; // Escritor para enviar datos al servidor
+    // Velocidades permitidas al reproducir una repetición
+    private static final double MIN_REPLAY_SPEED = 1.0;
+    private static final double MAX_REPLAY_SPEED = 100.0;
+
+    // Reconexión: tiempo total de intentos (igual a la reserva del asiento en el servidor) y pausa entre intentos
+    private static final long RECONNECT_TIMEOUT_MS = 30000;
+    private static final long RECONNECT_DELAY_MS = 1000;
+    private static final Gson gson = new Gson(); // Gson es seguro para hilos: se reutiliza en cada mensaje
+
+    private volatile Connection connection; // Conexión con el servidor (TCP o socket de dominio Unix)
+    private ServerConfig config = ServerConfig.defaults(); // Puerto, transporte y ruta del socket del servidor
+    private volatile PrintWriter out; // Escritor para enviar datos al servidor (cambia al reconectarse)
+    private String sessionToken; // Token de sesión recibido con el color, para reanudar la partida
+    private int lastSequence = 0; // Última jugada recibida del servidor
+    private final List<Line> drawnLines = new java.util.ArrayList<>(); // Líneas dibujadas, para limpiar el tablero si la sesión vence
+    private volatile boolean closing = false; // Indica que la aplicación se está cerrando
     private GameData firstPoint = null; // Primer punto seleccionado por el cliente
     private Pane backgroundPane; // Pane que contiene puntos y líneas
     private BufferedReader in; // Lector para recibir datos del servidor
@@ -47,7 +65,9 @@ public class Client extends Application {
     /**
      * Método principal de la aplicación.
      * 
-     * @param args Los argumentos de la línea de comandos (no se utilizan en este caso).
+     * @param args Los argumentos de la línea de comandos. Con "--replay archivo [velocidad]" el cliente
+     *             reproduce una repetición en lugar de conectarse al servidor; con "--config archivo.properties"
+     *             usa el puerto y el transporte de esa configuración del servidor.
      */
     public static void main(String[] args) {
         launch(args);
@@ -71,61 +91,21 @@ public class Client extends Application {
         scoreLabel.setLayoutY(10);
         backgroundPane.getChildren().add(scoreLabel);
 
-        String serverAddress = "localhost"; // Dirección del servidor (cambia si es necesario)
-        int serverPort = 12345; // Puerto del servidor
-
-        try {
-            socket = new Socket(serverAddress, serverPort);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            
-            // Hilo para recibir datos del servidor
-            Thread receiveThread = new Thread(() -> {
-                try {
-                    String inputLine;
-                    while ((inputLine = in.readLine()) != null) {
-                        Gson gson = new Gson();
-                        GameData receivedData = gson.fromJson(inputLine, GameData.class);
-                        if ("line".equals(receivedData.getType())) { // Se llama al metodo para dibujar la linea de las coordenadas recividas
-                            drawLineFromReceivedData(receivedData);
-                        } else if ("color".equals(receivedData.getType())) { // Se verifica el color recibido para dibujar la linea
-                            clientColor = receivedData.getColor();
-                        } else if ("score".equals(receivedData.getType())) {
-                            if (receivedData.getColor().equals(clientColor)) { // Se selecciona a que cliente sumarle puntos segun su color
-                                int score = receivedData.getScore();
-                                Platform.runLater(() -> {
-                                    scoreLabel.setText("Score: " + score); // Se cambia el valor de score de la etiqueta
-                                });
-                            }
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
-            receiveThread.start();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        // Configurar y abrir el puerto serial
-        serialPort = SerialPort.getCommPort("COM3"); // Reemplaza "COMx" con el nombre de tu puerto serial
-        serialPort.openPort();
-
-        // Hilo para leer datos del puerto serial
-        Thread serialReaderThread = new Thread(() -> {
-            while (true) {
-                byte[] data = new byte[1];
-                int bytesRead = serialPort.readBytes(data, data.length);
-                if (bytesRead > 0) {
-                    byte receivedByte = data[0];
-                    handleSerialData(receivedByte); // Se llama a la funcion para que lea el input del arduino
-                }
+        // Modo repetición: no se abre el socket ni el puerto serial
+        List<String> args = getParameters() != null ? getParameters().getRaw() : List.of();
+        int replayArg = args.indexOf("--replay");
+        if (replayArg >= 0 && replayArg + 1 < args.size()) {
+            double speed = replayArg + 2 < args.size() ? Double.parseDouble(args.get(replayArg + 2)) : MIN_REPLAY_SPEED;
+            startReplay(Paths.get(args.get(replayArg + 1)), speed, scoreLabel);
+        } else {
+            try {
+                config = ServerConfig.load(args.toArray(new String[0]));
+            } catch (IOException e) {
+                System.out.println("No se pudo leer la configuración, se usan los valores por defecto: " + e.getMessage());
             }
-        });
-
-        serialReaderThread.start();
+            connectToServer(scoreLabel);
+            openSerialPort();
+        }
 
         // Crear la cuadrícula de puntos
         for (int row = 0; row < GRID_SIZE; row++) {
@@ -163,6 +143,201 @@ public class Client extends Application {
         primaryStage.show();
     }
 
+    /**
+     * Abre la conexión con el servidor e inicia el hilo que recibe sus datos.
+     * 
+     * @param scoreLabel Etiqueta donde se muestra el score del cliente.
+     */
+    private void connectToServer(Label scoreLabel) {
+        try {
+            openConnection();
+            
+            // Hilo para recibir datos del servidor; si la conexión se cae, intenta reanudar la partida
+            Thread receiveThread = new Thread(() -> {
+                do {
+                    try {
+                        String inputLine;
+                        while ((inputLine = in.readLine()) != null) {
+                            GameData receivedData = gson.fromJson(inputLine, GameData.class);
+                            handleServerData(receivedData, scoreLabel);
+                        }
+                    } catch (IOException e) {
+                        if (!closing) {
+                            System.out.println("Se perdió la conexión con el servidor: " + e.getMessage());
+                        }
+                    }
+                } while (!closing && sessionToken != null && reconnect());
+            });
+            receiveThread.start();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Abre la conexión con el servidor y sus flujos de lectura y escritura. Con transport=unix se conecta al
+     * socket de dominio Unix del servidor; si no, al puerto TCP local.
+     *
+     * @throws IOException Si no se puede conectar.
+     */
+    private void openConnection() throws IOException {
+        String serverAddress = "localhost"; // Dirección del servidor (cambia si es necesario)
+
+        Connection newConnection = "unix".equals(config.getTransport())
+                ? ChannelConnection.openUnix(Paths.get(config.getSocketPath()))
+                : new SocketConnection(new Socket(serverAddress, config.getPort()));
+        in = new BufferedReader(new InputStreamReader(newConnection.getInputStream(), StandardCharsets.UTF_8));
+        out = new PrintWriter(newConnection.getOutputStream(), true);
+        connection = newConnection;
+    }
+
+    /**
+     * Procesa un mensaje recibido del servidor.
+     *
+     * @param receivedData Datos recibidos.
+     * @param scoreLabel   Etiqueta donde se muestra el score del cliente.
+     */
+    private void handleServerData(GameData receivedData, Label scoreLabel) {
+        if ("line".equals(receivedData.getType())) { // Se llama al metodo para dibujar la linea de las coordenadas recividas
+            if (receivedData.getSequence() > lastSequence) {
+                lastSequence = receivedData.getSequence();
+                drawLineFromReceivedData(receivedData);
+            }
+        } else if ("color".equals(receivedData.getType())) { // Se verifica el color recibido para dibujar la linea
+            clientColor = receivedData.getColor();
+            if (receivedData.getToken() != null && !receivedData.getToken().equals(sessionToken)) {
+                if (sessionToken != null) {
+                    clearBoard(); // Revancha (rematch): el tablero de la partida anterior ya no sirve
+                }
+                sessionToken = receivedData.getToken(); // Sala nueva: las jugadas se cuentan desde cero
+                lastSequence = 0;
+            }
+        } else if ("ping".equals(receivedData.getType())) { // Latido del servidor: se contesta para no ser desconectado
+            out.println(gson.toJson(GameData.createPongData()));
+        } else if ("throttled".equals(receivedData.getType())) { // El servidor descartó mensajes por exceso de tasa
+            System.out.println("El servidor descartó mensajes: se enviaron demasiado rápido");
+        } else if ("resume".equals(receivedData.getType())) { // La reserva del asiento venció: se espera otra sala
+            sessionToken = null;
+            lastSequence = 0;
+            clearBoard();
+        } else if ("score".equals(receivedData.getType())) {
+            if (receivedData.getColor().equals(clientColor)) { // Se selecciona a que cliente sumarle puntos segun su color
+                int score = receivedData.getScore();
+                Platform.runLater(() -> {
+                    scoreLabel.setText("Score: " + score); // Se cambia el valor de score de la etiqueta
+                });
+            }
+        }
+    }
+
+    /**
+     * Intenta volver a conectarse y pide al servidor el asiento reservado junto con las jugadas
+     * posteriores a la última recibida.
+     *
+     * @return true si se volvió a conectar.
+     */
+    private boolean reconnect() {
+        long deadline = System.currentTimeMillis() + RECONNECT_TIMEOUT_MS;
+        while (!closing && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+                openConnection();
+                out.println(gson.toJson(GameData.createResumeData(sessionToken, lastSequence)));
+                System.out.println("Conexión recuperada, reanudando desde la jugada " + lastSequence);
+                return true;
+            } catch (IOException e) {
+                // El servidor todavía no responde; se vuelve a intentar
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Quita del tablero las líneas dibujadas.
+     */
+    private void clearBoard() {
+        Platform.runLater(() -> {
+            backgroundPane.getChildren().removeAll(drawnLines);
+            drawnLines.clear();
+        });
+    }
+
+    /**
+     * Abre el puerto serial del control e inicia el hilo que lee sus datos.
+     */
+    private void openSerialPort() {
+        // Configurar y abrir el puerto serial
+        serialPort = SerialPort.getCommPort("COM3"); // Reemplaza "COMx" con el nombre de tu puerto serial
+        serialPort.openPort();
+
+        // Hilo para leer datos del puerto serial
+        Thread serialReaderThread = new Thread(() -> {
+            while (true) {
+                byte[] data = new byte[1];
+                int bytesRead = serialPort.readBytes(data, data.length);
+                if (bytesRead > 0) {
+                    byte receivedByte = data[0];
+                    handleSerialData(receivedByte); // Se llama a la funcion para que lea el input del arduino
+                }
+            }
+        });
+
+        serialReaderThread.start();
+    }
+
+    /**
+     * Reproduce las partidas de un archivo de repetición. El archivo se mapea en memoria y cada jugada
+     * pasa por drawLineFromReceivedData, igual que si hubiera llegado del servidor.
+     * 
+     * @param file       Archivo de repetición.
+     * @param speed      Velocidad de reproducción (1x a 100x).
+     * @param scoreLabel Etiqueta donde se muestran las puntuaciones.
+     */
+    private void startReplay(Path file, double speed, Label scoreLabel) {
+        double playbackSpeed = Math.max(MIN_REPLAY_SPEED, Math.min(MAX_REPLAY_SPEED, speed));
+        Thread replayThread = new Thread(() -> {
+            try {
+                ReplayFile.Reader reader = new ReplayFile.Reader(ReplayFile.map(file));
+                while (reader.nextGame()) {
+                    // Limpia las líneas de la partida anterior
+                    Platform.runLater(() -> backgroundPane.getChildren().removeIf(node -> node instanceof Line));
+                    GameRoom game = new GameRoom(0, reader.playerCount()); // Recalcula las puntuaciones
+                    long previousMillis = 0;
+                    for (int i = 0; i < reader.moveCount(); i++) {
+                        int move = reader.move(i);
+                        long elapsedMillis = ReplayFile.moveElapsedMillis(move);
+                        Thread.sleep((long) ((elapsedMillis - previousMillis) / playbackSpeed));
+                        previousMillis = elapsedMillis;
+
+                        int edge = ReplayFile.moveEdge(move);
+                        int seat = ReplayFile.movePlayer(move);
+                        drawLineFromReceivedData(GameData.createLineData(
+                                GameRoom.edgeStartX(edge), GameRoom.edgeStartY(edge),
+                                GameRoom.edgeEndX(edge), GameRoom.edgeEndY(edge),
+                                reader.color(seat)));
+                        if (game.applyMove(seat, edge) > 0) {
+                            StringBuilder text = new StringBuilder("Score:");
+                            for (int p = 0; p < game.getPlayerCount(); p++) {
+                                text.append(' ').append(reader.color(p)).append(' ').append(game.getScore(p));
+                            }
+                            Platform.runLater(() -> scoreLabel.setText(text.toString()));
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
     /**
      * Maneja los datos recibidos desde el puerto serial y actualiza la posición del jugador.
      * 
@@ -229,7 +404,6 @@ public class Client extends Application {
      */
     private void sendGameDataToServer(GameData gameData1, GameData gameData2) {
         try {
-            Gson gson = new Gson(); // Crea nuevo Gson
             GameData lineData = GameData.createLineData( // Envia coordenadas de inicio y fin de la linea
                     gameData1.getX(), gameData1.getY(),
                     gameData2.getX(), gameData2.getY(),
@@ -259,6 +433,7 @@ public class Client extends Application {
         line.setStrokeWidth(2.0);
 
         Platform.runLater(() -> {
+            drawnLines.add(line);
             backgroundPane.getChildren().add(0, line); // Actualiza la interfaz grafica
         });
     }
@@ -267,8 +442,9 @@ public class Client extends Application {
      * Cierra la conexión con el servidor y el puerto serial al detener la aplicación.
      */
     public void stop() throws Exception {
-        if (socket != null) {
-            socket.close();
+        closing = true;
+        if (connection != null) {
+            connection.close();
         }
         if (serialPort != null) {
             serialPort.closePort();
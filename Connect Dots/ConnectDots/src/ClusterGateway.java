@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Pasarela del clúster. Recibe las conexiones de los clientes en el puerto público, las agrupa en salas
+ * (cada desiredPlayers conexiones comparten una sala), elige el nodo dueño de la sala con el anillo de
+ * GossipService y desde ahí solo copia bytes en ambos sentidos. Antes de copiar le envía al nodo un
+ * mensaje join para que siente la conexión en la sala correcta. Si un cliente se va mientras su sala todavía
+ * se llena, su asiento se devuelve: el nodo lo quita de la sala y la próxima conexión lo ocupa.
+ */
+public class ClusterGateway {
+    private static final int BUFFER_SIZE = 8192; // Tamaño del buffer de copia
+
+    private final ServerConfig config; // Puerto público y jugadores por sala
+    private final GossipService gossip; // Membresía y dueños de las salas
+    private final int roomPrefix; // Prefijo de las salas de esta pasarela, para no chocar con otras
+    private ServerSocket serverSocket;
+    private int nextRoom = 1; // Contador de salas de esta pasarela
+    private Seat current; // Sala que se está llenando
+    private int seatsLeft = 0; // Asientos libres en la sala que se está llenando
+
+    /**
+     * Sala reservada para una conexión y el nodo que la atiende.
+     */
+    private static final class Seat {
+        private final int roomId;
+        private final GossipService.Member owner;
+
+        Seat(int roomId, GossipService.Member owner) {
+            this.roomId = roomId;
+            this.owner = owner;
+        }
+    }
+
+    public ClusterGateway(ServerConfig config, GossipService gossip) {
+        this.config = config;
+        this.gossip = gossip;
+        this.roomPrefix = (config.getNodeId().hashCode() & 0x7FF) << 20;
+    }
+
+    /**
+     * Abre el puerto público e inicia el hilo que acepta clientes.
+     *
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(config.getPort());
+        Thread acceptThread = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket client = serverSocket.accept();
+                    Thread routeThread = new Thread(() -> route(client));
+                    routeThread.start();
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }, "gateway");
+        acceptThread.start();
+        System.out.println("Pasarela lista en el puerto " + serverSocket.getLocalPort());
+    }
+
+    /**
+     * Cierra el puerto público.
+     */
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reserva un asiento. Todos los asientos de una sala van al mismo nodo aunque el anillo cambie
+     * mientras la sala se llena.
+     *
+     * @return Sala y dueño, o null si no hay nodos de juego.
+     */
+    private synchronized Seat reserveSeat() {
+        if (seatsLeft == 0) {
+            int roomId = roomPrefix | (nextRoom++ & 0xFFFFF);
+            GossipService.Member owner = gossip.ownerOf(roomId);
+            if (owner == null) {
+                return null;
+            }
+            current = new Seat(roomId, owner);
+            seatsLeft = config.getDefaultPlayers();
+        }
+        seatsLeft--;
+        return current;
+    }
+
+    /**
+     * Devuelve el asiento de un cliente que se desconectó, si su sala sigue siendo la que se está llenando.
+     * Con asientos libres todavía, la sala no puede haber empezado en el nodo.
+     */
+    private synchronized void releaseSeat(Seat seat) {
+        if (seat == current && seatsLeft > 0) {
+            seatsLeft++;
+        }
+    }
+
+    /**
+     * Conecta al cliente con el nodo dueño de su sala y copia los datos en ambos sentidos.
+     */
+    private void route(Socket client) {
+        Seat seat = reserveSeat();
+        if (seat == null) {
+            ServerMetrics.increment("gateway.rejected");
+            closeQuietly(client);
+            return;
+        }
+        try {
+            Socket upstream = new Socket(seat.owner.getHost(), seat.owner.getGamePort());
+            PrintWriter out = new PrintWriter(upstream.getOutputStream(), true);
+            out.println(GameDataCodec.encode(GameData.createJoinData(seat.roomId, config.getDefaultPlayers())));
+            ServerMetrics.increment("gateway.routed");
+
+            Thread downstream = new Thread(() -> pipe(upstream, client));
+            downstream.start();
+            pipe(client, upstream);
+        } catch (IOException e) {
+            ServerMetrics.increment("gateway.upstream.failures");
+            closeQuietly(client);
+        }
+        releaseSeat(seat);
+    }
+
+    /**
+     * Copia bytes de un socket a otro hasta que alguno se cierra, y luego cierra ambos.
+     */
+    private static void pipe(Socket from, Socket to) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Uno de los extremos se desconectó
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ya estaba cerrado
+        }
+    }
+}
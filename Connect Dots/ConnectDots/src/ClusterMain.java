@@ -0,0 +1,56 @@
+import java.io.IOException;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Punto de entrada del modo clúster. Un nodo es un GameServer que solo acepta conexiones reenviadas por la
+ * pasarela y anuncia su puerto de juego por gossip; la pasarela recibe a los clientes y los envía al nodo
+ * dueño de cada sala. Ver scripts/cluster-local.sh para levantar varios procesos en el mismo equipo.
+ *
+ * Uso: java ClusterMain node|gateway [--config archivo.properties]
+ */
+public class ClusterMain {
+
+    /**
+     * @param args Modo ("node" o "gateway") y argumentos de ServerConfig.
+     * @throws IOException Si no se pueden abrir los puertos.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || !("node".equals(args[0]) || "gateway".equals(args[0]))) {
+            System.err.println("Uso: java ClusterMain node|gateway [--config archivo.properties]");
+            System.exit(1);
+        }
+        ServerConfig config = ServerConfig.load(args);
+        if (config.getGossipPort() == 0) {
+            System.err.println("El modo clúster necesita gossipPort");
+            System.exit(1);
+        }
+
+        if ("node".equals(args[0])) {
+            config.setRoutedJoins(true);
+            GameServer server = new GameServer(config);
+            server.start();
+            AdminServer admin = config.getAdminPort() > 0 ? new AdminServer(server, config) : null;
+            if (admin != null) {
+                admin.start();
+            }
+            GossipService gossip = new GossipService(config, server.getLocalPort());
+            gossip.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                gossip.stop();
+                if (admin != null) {
+                    admin.stop();
+                }
+                server.stop();
+            }));
+        } else {
+            GossipService gossip = new GossipService(config, 0);
+            gossip.start();
+            ClusterGateway gateway = new ClusterGateway(config, gossip);
+            gateway.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                gateway.stop();
+                gossip.stop();
+            }));
+        }
+    }
+}
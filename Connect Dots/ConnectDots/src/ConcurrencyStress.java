@@ -0,0 +1,353 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Pruebas de estrés de concurrencia al estilo de jcstress, sin dependencias: cada escenario lanza muchos hilos
+ * contra el estado compartido del servidor y al final verifica invariantes que solo se cumplen si no hubo
+ * carreras. Termina con código 1 si alguna falla.
+ *
+ * <ul>
+ *   <li>Jugadas: hilos que juegan con asientos y líneas al azar sobre salas de RoomStore, creando y liberando
+ *   ranuras al terminar cada partida. Cada partida terminada se vuelve a jugar en un GameRoom y debe dar el mismo
+ *   resultado; ninguna ranura se entrega dos veces. Se repite con 1, 2, 4... hilos para medir cómo escala.</li>
+ *   <li>Posiciones: hilos que registran resultados en Leaderboard mientras otro la consulta; los totales deben
+ *   cuadrar.</li>
+ *   <li>Ingresos y reinicios: clientes reales por TCP que entran a salas del clúster (mensaje join) y juegan
+ *   mientras otro hilo reinicia el servidor. Sin reinicios cada sala debe quedar con un asiento por color; al
+ *   final no debe quedar ninguna sala, ranura ni conexión viva.</li>
+ * </ul>
+ *
+ * Uso: java ConcurrencyStress [segundos por medición] [hilos máximos]
+ */
+public class ConcurrencyStress {
+    private static final int TABLES = 256; // Salas compartidas en el escenario de jugadas
+    private static final List<String> failures = Collections.synchronizedList(new ArrayList<>()); // Invariantes violadas
+
+    /**
+     * Sala del escenario de jugadas: su ranura actual y las jugadas aceptadas, protegidas por el bloqueo del objeto.
+     */
+    private static final class Table {
+        private int slot;
+        private final int[] log = new int[GameRoom.EDGE_COUNT];
+    }
+
+    /**
+     * @param args Segundos de cada medición (por defecto 2) e hilos máximos (por defecto, los núcleos).
+     * @throws Exception Si un hilo no termina.
+     */
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        long millis = (long) (seconds * 1000);
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> failures.add("excepción en " + thread.getName() + ": " + e));
+
+        int cores = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        System.out.printf("Jugadas sobre RoomStore (hasta %d hilos)%n", cores);
+        System.out.printf("%6s %14s %10s %10s%n", "hilos", "jugadas/s", "acelera", "eficiencia");
+        double base = 0;
+        for (int threads = 1; threads <= cores; threads = threads * 2 > cores && threads != cores ? cores : threads * 2) {
+            double rate = runMoves(threads, millis);
+            base = threads == 1 ? rate : base;
+            System.out.printf("%6d %14.0f %9.2fx %9.0f%%%n", threads, rate, rate / base, 100 * rate / base / threads);
+        }
+
+        runLeaderboard(Math.max(4, cores), 200_000);
+        System.out.println("Posiciones: listo");
+
+        runServer(Math.max(8, cores * 2), millis);
+        System.out.println("Ingresos y reinicios: listo");
+
+        if (failures.isEmpty()) {
+            System.out.println("OK");
+        } else {
+            for (String failure : failures) {
+                System.out.println("FALLA " + failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Escenario de jugadas. Devuelve las jugadas aceptadas por segundo.
+     */
+    private static double runMoves(int threads, long millis) throws InterruptedException {
+        RoomStore store = new RoomStore();
+        Set<Integer> live = ConcurrentHashMap.newKeySet(); // Ranuras entregadas y no liberadas
+        Table[] tables = new Table[TABLES];
+        for (int i = 0; i < TABLES; i++) {
+            tables[i] = new Table();
+            tables[i].slot = allocate(store, live, 1 + i % GameRoom.MAX_PLAYERS);
+        }
+        AtomicLong accepted = new AtomicLong();
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            workers[t] = new Thread(() -> {
+                long moves = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1024; i++) {
+                        Table table = tables[random.nextInt(TABLES)];
+                        synchronized (table) {
+                            int players = store.getPlayerCount(table.slot);
+                            int seat = random.nextInt(players);
+                            int edge = random.nextInt(GameRoom.EDGE_COUNT);
+                            if (store.applyMove(table.slot, seat, edge) < 0) {
+                                continue;
+                            }
+                            moves++;
+                            table.log[store.getSequence(table.slot) - 1] = ReplayFile.packMove(edge, seat, 0);
+                            if (store.isFinished(table.slot)) {
+                                verify(store, table.slot, table.log, players);
+                                live.remove(table.slot);
+                                store.free(table.slot);
+                                table.slot = allocate(store, live, 1 + random.nextInt(GameRoom.MAX_PLAYERS));
+                            }
+                        }
+                    }
+                }
+                accepted.addAndGet(moves);
+            }, "jugadas-" + t);
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        if (store.size() != live.size()) {
+            failures.add("RoomStore cuenta " + store.size() + " ranuras ocupadas y hay " + live.size());
+        }
+        return accepted.get() / elapsed;
+    }
+
+    private static int allocate(RoomStore store, Set<Integer> live, int players) {
+        int slot = store.allocate(players);
+        if (!live.add(slot)) {
+            failures.add("la ranura " + slot + " se entregó dos veces");
+        }
+        return slot;
+    }
+
+    /**
+     * Vuelve a jugar una partida terminada en un GameRoom y la compara con la ranura.
+     */
+    private static void verify(RoomStore store, int slot, int[] log, int players) {
+        GameRoom room = new GameRoom(0, players);
+        for (int i = 0; i < GameRoom.EDGE_COUNT; i++) {
+            if (room.applyMove(ReplayFile.movePlayer(log[i]), ReplayFile.moveEdge(log[i])) < 0) {
+                failures.add("la jugada " + (i + 1) + " de la ranura " + slot + " no es válida al repetirla");
+                return;
+            }
+        }
+        for (int p = 0; p < players; p++) {
+            if (room.getScore(p) != store.getScore(slot, p)) {
+                failures.add("la ranura " + slot + " tiene otra puntuación para el jugador " + p);
+            }
+        }
+        if (room.getWinner() != store.getWinner(slot) || store.getSequence(slot) != GameRoom.EDGE_COUNT) {
+            failures.add("la ranura " + slot + " no coincide con la repetición");
+        }
+    }
+
+    /**
+     * Escenario de posiciones: escritores concurrentes y un lector continuo.
+     */
+    private static void runLeaderboard(int threads, int recordsPerThread) throws InterruptedException {
+        Leaderboard leaderboard = new Leaderboard();
+        AtomicInteger done = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (done.get() < threads) {
+                List<Leaderboard.Row> top = leaderboard.top(10);
+                for (int i = 1; i < top.size(); i++) {
+                    if (top.get(i).getWins() > top.get(i - 1).getWins()) {
+                        failures.add("Leaderboard.top no está ordenada");
+                    }
+                }
+            }
+        }, "posiciones-lector");
+        reader.start();
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < recordsPerThread; i++) {
+                    leaderboard.record(random.nextInt(1000), 3, (i & 1) == 0);
+                }
+                done.incrementAndGet();
+            }, "posiciones-" + t);
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        reader.join();
+
+        long games = 0, wins = 0, points = 0;
+        for (Leaderboard.Row row : leaderboard.top(Integer.MAX_VALUE)) {
+            games += row.getGames();
+            wins += row.getWins();
+            points += row.getPoints();
+        }
+        long expected = (long) threads * recordsPerThread;
+        if (games != expected || points != 3 * expected || wins != threads * ((recordsPerThread + 1) / 2L)) {
+            failures.add("Leaderboard perdió registros: " + games + " partidas de " + expected);
+        }
+    }
+
+    /**
+     * Escenario de ingresos y reinicios sobre un GameServer real.
+     */
+    private static void runServer(int clients, long millis) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("port", "0");
+        properties.setProperty("defaultPlayers", "2");
+        properties.setProperty("routedJoins", "true");
+        properties.setProperty("replayDir", "");
+        properties.setProperty("sessionGraceMs", "200");
+        properties.setProperty("connectionRatePerSec", "0");
+        properties.setProperty("roomRatePerSec", "0");
+        GameServer server = new GameServer(ServerConfig.fromProperties(properties));
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // El servidor anuncia cada conexión
+        try {
+            server.start();
+
+            // Sin reinicios: cada pareja de clientes comparte una sala y recibe los dos colores
+            String[] colors = new String[clients];
+            List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+            Thread[] joiners = new Thread[clients];
+            for (int i = 0; i < clients; i++) {
+                int id = i;
+                joiners[i] = new Thread(() -> {
+                    try {
+                        Socket socket = new Socket("127.0.0.1", server.getLocalPort());
+                        sockets.add(socket);
+                        colors[id] = join(socket, id / 2);
+                    } catch (IOException e) {
+                        failures.add("el cliente " + id + " no pudo entrar: " + e);
+                    }
+                }, "ingreso-" + i);
+                joiners[i].start();
+            }
+            for (Thread joiner : joiners) {
+                joiner.join();
+            }
+            for (int room = 0; room < clients / 2; room++) {
+                String a = colors[room * 2], b = colors[room * 2 + 1];
+                if (a == null || b == null || a.equals(b)) {
+                    failures.add("la sala " + room + " quedó con los colores " + a + " y " + b);
+                }
+            }
+            if (ServerMetrics.get("server.rooms") != clients / 2) {
+                failures.add("se esperaban " + clients / 2 + " salas y hay " + ServerMetrics.get("server.rooms"));
+            }
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+
+            // Con reinicios: los clientes entran, juegan y salen mientras el servidor se reinicia
+            AtomicInteger nextRoom = new AtomicInteger(1_000_000);
+            AtomicInteger seated = new AtomicInteger();
+            long deadline = System.nanoTime() + millis * 1_000_000;
+            Thread[] players = new Thread[clients];
+            for (int i = 0; i < clients; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                players[i] = new Thread(() -> {
+                    while (System.nanoTime() < deadline) {
+                        play(server, nextRoom.getAndIncrement() / 2, random, seated);
+                    }
+                }, "jugador-" + i);
+                players[i].start();
+            }
+            int restarts = 0;
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(Math.max(1, millis / 10));
+                server.restart();
+                restarts++;
+            }
+            for (Thread player : players) {
+                player.join();
+            }
+            server.stop();
+            console.printf("Ingresos y reinicios: %d asientos, %d reinicios%n", seated.get(), restarts);
+
+            // Los hilos de los clientes terminan de cerrar y vencen las reservas
+            long settle = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < settle && (ServerMetrics.get("server.rooms") > 0
+                    || ServerMetrics.get("rooms.offheap.used") > 0 || ServerMetrics.get("server.connections") > 0)) {
+                Thread.sleep(50);
+            }
+            for (String gauge : new String[]{"server.rooms", "rooms.offheap.used", "server.connections"}) {
+                if (ServerMetrics.get(gauge) != 0) {
+                    failures.add(gauge + " quedó en " + ServerMetrics.get(gauge) + " después de detener el servidor");
+                }
+            }
+        } finally {
+            System.setOut(console);
+            server.stop();
+        }
+    }
+
+    /**
+     * Envía el mensaje join y espera el color del asiento.
+     *
+     * @return Color recibido o null si la conexión se cerró antes.
+     */
+    private static String join(Socket socket, int room) throws IOException {
+        socket.setSoTimeout(5000);
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        out.println(GameDataCodec.encode(GameData.createJoinData(room, 2)));
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        String line;
+        while ((line = in.readLine()) != null) {
+            GameData data = GameDataCodec.decode(line);
+            if ("color".equals(data.getType())) {
+                return data.getColor();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Un cliente del escenario con reinicios: entra, envía líneas al azar y se va. Las desconexiones por
+     * reinicio son esperables.
+     */
+    private static void play(GameServer server, int room, SplittableRandom random, AtomicInteger seated) {
+        int port = server.getLocalPort();
+        if (port < 0) {
+            return;
+        }
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            if (join(socket, room) == null) {
+                return;
+            }
+            seated.incrementAndGet();
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            for (int i = 0; i < 2 * GameRoom.EDGE_COUNT; i++) {
+                int edge = random.nextInt(GameRoom.EDGE_COUNT);
+                out.println(GameDataCodec.encode(GameData.createLineData(GameRoom.edgeStartX(edge), GameRoom.edgeStartY(edge),
+                        GameRoom.edgeEndX(edge), GameRoom.edgeEndY(edge), "")));
+            }
+        } catch (IOException e) {
+            // El servidor se reinició en medio de la partida
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Conexión de un cliente con el servidor, independiente del transporte. El servidor solo lee líneas, escribe
+ * líneas y cierra; con esta interfaz la misma lógica atiende sockets TCP (SocketConnection) y canales en
+ * memoria dentro del mismo proceso (LoopbackConnection).
+ */
+public interface Connection extends Closeable {
+
+    /**
+     * @return Flujo con los bytes que envía el otro extremo.
+     * @throws IOException Si la conexión ya no se puede leer.
+     */
+    InputStream getInputStream() throws IOException;
+
+    /**
+     * @return Flujo para enviar bytes al otro extremo.
+     * @throws IOException Si la conexión ya no se puede escribir.
+     */
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * Cierra la conexión. Una lectura bloqueada en este extremo termina y el otro extremo recibe fin de flujo.
+     *
+     * @throws IOException Si falla el cierre.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * @return Si este extremo ya se cerró.
+     */
+    boolean isClosed();
+
+    /**
+     * @return Descripción del otro extremo, para los registros.
+     */
+    String getRemoteAddress();
+}
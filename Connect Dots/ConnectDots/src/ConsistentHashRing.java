@@ -0,0 +1,93 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Anillo de hashing consistente que decide qué nodo del clúster es dueño de cada sala. Cada nodo ocupa
+ * varios puntos virtuales del anillo para repartir las salas de forma pareja; cuando un nodo entra o sale
+ * solo cambian de dueño las salas de los tramos vecinos.
+ *
+ * Las lecturas no bloquean: cada cambio de miembros publica una copia nueva del anillo.
+ */
+public class ConsistentHashRing {
+    private final int virtualNodes; // Puntos del anillo por nodo
+    private volatile TreeMap<Long, String> ring = new TreeMap<>(); // Punto del anillo -> nodo
+
+    public ConsistentHashRing() {
+        this(128);
+    }
+
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Agrega un nodo al anillo.
+     *
+     * @param node Identificador del nodo.
+     */
+    public synchronized void add(String node) {
+        TreeMap<Long, String> copy = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            copy.put(hash(node + "#" + i), node);
+        }
+        ring = copy;
+    }
+
+    /**
+     * Quita un nodo del anillo.
+     *
+     * @param node Identificador del nodo.
+     */
+    public synchronized void remove(String node) {
+        TreeMap<Long, String> copy = new TreeMap<>(ring);
+        copy.values().removeIf(node::equals);
+        ring = copy;
+    }
+
+    /**
+     * Obtiene el nodo dueño de una sala.
+     *
+     * @param roomId Identificador de la sala.
+     * @return Nodo dueño o null si el anillo está vacío.
+     */
+    public String ownerOf(int roomId) {
+        TreeMap<Long, String> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = current.ceilingEntry(mix(roomId));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    /**
+     * Nodos presentes en el anillo.
+     *
+     * @return Conjunto de identificadores.
+     */
+    public Set<String> nodes() {
+        return Collections.unmodifiableSet(new HashSet<>(ring.values()));
+    }
+
+    /**
+     * Hash FNV-1a de 64 bits mezclado con el finalizador de SplitMix64.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
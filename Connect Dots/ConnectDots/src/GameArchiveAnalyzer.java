@@ -0,0 +1,304 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Herramienta de análisis fuera de línea sobre partidas archivadas con ReplayFile. Recorre la carpeta con un
+ * stream paralelo, sin juntar antes la lista de archivos. Los archivos chicos (una partida por archivo, como los
+ * que guarda el servidor) se leen a un buffer que cada hilo reutiliza; solo los grandes se mapean en memoria, de
+ * a uno por hilo, y se dividen en bloques de partidas que se procesan en paralelo. El mapeo no se guarda después
+ * del archivo, así que la cantidad de mapeos vivos no crece con la cantidad de archivos.
+ * Cada partida se vuelve a jugar en un GameRoom reutilizado por hilo, sin crear GameData ni objetos por jugada.
+ * Un archivo con un encabezado inválido o una partida incompleta se cuenta como dañado y se omite desde ese punto.
+ *
+ * Uso: java GameArchiveAnalyzer carpeta [reporte.txt]
+ */
+public class GameArchiveAnalyzer {
+    private static final int GAMES_PER_CHUNK = 4096; // Partidas por tarea paralela
+    private static final int SMALL_FILE_BYTES = 1 << 20; // Hasta este tamaño el archivo se lee en vez de mapearse
+
+    /**
+     * Punto de entrada de la herramienta.
+     *
+     * @param args Carpeta con repeticiones y, opcionalmente, archivo de reporte.
+     * @throws IOException Si no se puede leer la carpeta o escribir el reporte.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java GameArchiveAnalyzer carpeta [reporte.txt]");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        Stats stats = analyze(Paths.get(args[0]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (args.length > 1) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(args[1])))) {
+                stats.write(out);
+            }
+        } else {
+            PrintWriter out = new PrintWriter(System.out);
+            stats.write(out);
+            out.flush();
+        }
+        System.err.printf("%d partidas analizadas en %.2f s%n", stats.games, seconds);
+    }
+
+    /**
+     * Analiza todas las repeticiones de una carpeta.
+     *
+     * @param dir Carpeta con archivos .cdr.
+     * @return Estadísticas acumuladas.
+     * @throws IOException Si no se puede recorrer la carpeta.
+     */
+    public static Stats analyze(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.parallel()
+                    .filter(file -> file.toString().endsWith(ReplayFile.EXTENSION))
+                    .collect(Stats::new, Stats::accumulateFile, Stats::combine);
+        }
+    }
+
+    /**
+     * Divide un buffer en bloques de partidas completas. Solo se leen los encabezados.
+     *
+     * @return false si el buffer tiene una partida inválida o incompleta; los bloques llegan hasta la anterior.
+     */
+    private static boolean split(ByteBuffer buffer, List<ByteBuffer> chunks) {
+        int chunkStart = 0;
+        int offset = 0;
+        int games = 0;
+        boolean valid = true;
+        while (offset < buffer.limit()) {
+            if (!ReplayFile.isValidGame(buffer, offset)) {
+                valid = false;
+                break;
+            }
+            int moveCount = buffer.get(offset + 6) & 0xFF;
+            offset += ReplayFile.HEADER_BYTES + moveCount * ReplayFile.MOVE_BYTES;
+            if (++games == GAMES_PER_CHUNK) {
+                chunks.add(buffer.slice(chunkStart, offset - chunkStart));
+                chunkStart = offset;
+                games = 0;
+            }
+        }
+        if (games > 0) {
+            chunks.add(buffer.slice(chunkStart, offset - chunkStart));
+        }
+        return valid;
+    }
+
+    /**
+     * Estadísticas acumuladas. Cada hilo llena su propia instancia y al final se combinan.
+     */
+    public static final class Stats {
+        private static final int COLORS = GameRoom.SEAT_COLORS.length;
+
+        private long games; // Partidas analizadas
+        private long moves; // Jugadas analizadas
+        private long corrupt; // Partidas con jugadas inválidas
+        private long corruptFiles; // Archivos ilegibles o con un encabezado inválido
+        private long draws; // Partidas sin un único ganador
+        private long firstMoverWins; // Partidas ganadas por quien jugó primero
+        private long chains; // Rachas de jugadas seguidas que cierran cuadrados
+        private long chainBoxes; // Cuadrados cerrados dentro de esas rachas
+        private long maxChain; // Racha más larga
+        private final long[] boxesPerPlayer = new long[GameRoom.BOX_COUNT + 1]; // Histograma de cuadrados por jugador y partida
+        private final long[] firstMoverBoxes = new long[GameRoom.BOX_COUNT]; // Veces que el primer jugador cerró cada cuadrado
+        private final long[] seatGames = new long[GameRoom.MAX_PLAYERS];
+        private final long[] seatWins = new long[GameRoom.MAX_PLAYERS];
+        private final long[] colorGames = new long[COLORS];
+        private final long[] colorWins = new long[COLORS];
+        private final GameRoom[] rooms = new GameRoom[GameRoom.MAX_PLAYERS + 1]; // Un motor reutilizable por cantidad de jugadores
+        private ByteBuffer readBuffer; // Buffer reutilizado para los archivos chicos
+
+        /**
+         * Analiza un archivo de repeticiones. Si está dañado, se cuenta y se analizan las partidas anteriores al daño.
+         *
+         * @param file Archivo .cdr.
+         */
+        void accumulateFile(Path file) {
+            List<ByteBuffer> chunks = new ArrayList<>();
+            try {
+                if (!split(load(file), chunks)) {
+                    corruptFiles++;
+                }
+            } catch (IOException e) {
+                corruptFiles++;
+                return;
+            }
+            if (chunks.size() == 1) {
+                accumulate(chunks.get(0));
+            } else if (!chunks.isEmpty()) {
+                combine(chunks.parallelStream().collect(Stats::new, Stats::accumulate, Stats::combine));
+            }
+        }
+
+        /**
+         * Lee un archivo chico al buffer del hilo o mapea uno grande.
+         */
+        private ByteBuffer load(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > SMALL_FILE_BYTES) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                if (readBuffer == null) {
+                    readBuffer = ByteBuffer.allocate(SMALL_FILE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                readBuffer.clear().limit((int) size);
+                while (readBuffer.hasRemaining() && channel.read(readBuffer) >= 0) {
+                    // Lee hasta llenar el tamaño del archivo
+                }
+                return readBuffer.flip();
+            }
+        }
+
+        /**
+         * Vuelve a jugar todas las partidas de un bloque.
+         *
+         * @param chunk Bloque de partidas consecutivas.
+         */
+        void accumulate(ByteBuffer chunk) {
+            ReplayFile.Reader reader = new ReplayFile.Reader(chunk);
+            while (reader.nextGame()) {
+                accumulateGame(reader);
+            }
+        }
+
+        private void accumulateGame(ReplayFile.Reader reader) {
+            int players = reader.playerCount();
+            GameRoom room = rooms[players];
+            if (room == null) {
+                room = rooms[players] = new GameRoom(0, players);
+            } else {
+                room.reset();
+            }
+
+            int chain = 0;
+            int moveCount = reader.moveCount();
+            for (int i = 0; i < moveCount; i++) {
+                int move = reader.move(i);
+                int completed = room.applyMove(ReplayFile.movePlayer(move), ReplayFile.moveEdge(move));
+                if (completed < 0) {
+                    corrupt++;
+                    return;
+                }
+                if (completed > 0) {
+                    chain += completed;
+                } else if (chain > 0) {
+                    closeChain(chain);
+                    chain = 0;
+                }
+            }
+            if (chain > 0) {
+                closeChain(chain);
+            }
+            games++;
+            moves += moveCount;
+
+            for (int box = 0; box < GameRoom.BOX_COUNT; box++) {
+                if (room.getBoxOwner(box) == 0) {
+                    firstMoverBoxes[box]++;
+                }
+            }
+            int winner = room.getWinner();
+            if (winner < 0) {
+                draws++;
+            } else if (winner == 0) {
+                firstMoverWins++;
+            }
+            for (int seat = 0; seat < players; seat++) {
+                boxesPerPlayer[room.getScore(seat)]++;
+                seatGames[seat]++;
+                int color = reader.colorIndex(seat);
+                colorGames[color]++;
+                if (seat == winner) {
+                    seatWins[seat]++;
+                    colorWins[color]++;
+                }
+            }
+        }
+
+        private void closeChain(int length) {
+            chains++;
+            chainBoxes += length;
+            maxChain = Math.max(maxChain, length);
+        }
+
+        /**
+         * Suma las estadísticas de otro hilo a estas.
+         *
+         * @param other Estadísticas a sumar.
+         */
+        void combine(Stats other) {
+            games += other.games;
+            moves += other.moves;
+            corrupt += other.corrupt;
+            corruptFiles += other.corruptFiles;
+            draws += other.draws;
+            firstMoverWins += other.firstMoverWins;
+            chains += other.chains;
+            chainBoxes += other.chainBoxes;
+            maxChain = Math.max(maxChain, other.maxChain);
+            add(boxesPerPlayer, other.boxesPerPlayer);
+            add(firstMoverBoxes, other.firstMoverBoxes);
+            add(seatGames, other.seatGames);
+            add(seatWins, other.seatWins);
+            add(colorGames, other.colorGames);
+            add(colorWins, other.colorWins);
+        }
+
+        private static void add(long[] target, long[] source) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += source[i];
+            }
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Escribe el reporte de texto.
+         *
+         * @param out Destino del reporte.
+         */
+        public void write(PrintWriter out) {
+            out.println("Partidas: " + games + " (jugadas " + moves + ", dañadas " + corrupt + ")");
+            out.println("Archivos dañados: " + corruptFiles);
+            out.printf("Ventaja del primer jugador: %.4f de victorias, %.4f de empates%n", ratio(firstMoverWins, games), ratio(draws, games));
+            out.printf("Rachas de cuadrados: %d, largo promedio %.3f, máximo %d%n", chains, ratio(chainBoxes, chains), maxChain);
+            out.println("Cuadrados por jugador y partida:");
+            for (int i = 0; i < boxesPerPlayer.length; i++) {
+                out.println("  " + i + ": " + boxesPerPlayer[i]);
+            }
+            out.println("Cuadrados cerrados por el primer jugador:");
+            for (int box = 0; box < firstMoverBoxes.length; box++) {
+                out.printf("  (%d, %d): %.4f%n", box / GameRoom.BOXES_PER_SIDE + 1, box % GameRoom.BOXES_PER_SIDE + 1, ratio(firstMoverBoxes[box], games));
+            }
+            out.println("Victorias por asiento:");
+            for (int seat = 0; seat < seatGames.length; seat++) {
+                out.printf("  %d: %.4f (%d partidas)%n", seat + 1, ratio(seatWins[seat], seatGames[seat]), seatGames[seat]);
+            }
+            out.println("Victorias por color:");
+            for (int color = 0; color < COLORS; color++) {
+                out.printf("  %s: %.4f (%d partidas)%n", GameRoom.SEAT_COLORS[color], ratio(colorWins[color], colorGames[color]), colorGames[color]);
+            }
+        }
+
+        private static double ratio(long part, long total) {
+            return total == 0 ? 0 : (double) part / total;
+        }
+    }
+}
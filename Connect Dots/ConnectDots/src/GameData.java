@@ -14,6 +14,11 @@ public class GameData {
     private String color; // Color asociado a los datos (utilizado en líneas y colores)
     private int score; // Puntuación asociada a los datos (utilizada en puntuaciones)
     private int clientId; // Identificador del cliente que encontró el cuadrado
+    private int room; // Sala a la que pertenece el mensaje (usado en join)
+    private int players; // Jugadores de la sala (usado en join)
+    private String token; // Token de sesión para reanudar la partida (usado en color y resume)
+    private int sequence; // Número de jugada dentro de la sala (usado en line y resume)
+    private String name; // Nombre del jugador (usado en register)
 
     /**
      * Crea y devuelve un objeto GameData que representa un punto en el juego.
@@ -53,6 +58,25 @@ public class GameData {
     public GameData() {
         // Constructor por defecto vacío
     }
+
+    /**
+     * Crea un GameData con todos sus campos. Lo usa GameDataCodec para decodificar sin reflexión.
+     */
+    static GameData create(String type, int x, int y, int startX, int startY, int endX, int endY,
+                           String color, int score, int clientId, int room, int players,
+                           String token, int sequence, String name) {
+        GameData data = new GameData(type, startX, startY, endX, endY, color);
+        data.x = x;
+        data.y = y;
+        data.score = score;
+        data.clientId = clientId;
+        data.room = room;
+        data.players = players;
+        data.token = token;
+        data.sequence = sequence;
+        data.name = name;
+        return data;
+    }
     public GameData(String type, int startX, int startY, int endX, int endY, String color) {
         this.type = type;
         this.startX = startX;
@@ -91,6 +115,88 @@ public class GameData {
         return data;
     }
 
+    /**
+     * Crea y devuelve un objeto GameData con el que la pasarela del clúster indica a un nodo
+     * en qué sala debe sentar a la conexión que le reenvía.
+     *
+     * @param room    Identificador de la sala.
+     * @param players Cantidad de jugadores de la sala.
+     * @return Objeto GameData que representa una unión a sala.
+     */
+    public static GameData createJoinData(int room, int players) {
+        GameData data = new GameData();
+        data.type = "join";
+        data.room = room;
+        data.players = players;
+        return data;
+    }
+
+    /**
+     * Crea y devuelve un objeto GameData con el que un cliente que perdió la conexión pide recuperar su
+     * asiento. El servidor responde con el color y las jugadas posteriores a la última recibida; si el token
+     * ya venció, responde con un resume sin token y el cliente vuelve a esperar sala.
+     *
+     * @param token    Token de sesión recibido junto con el color.
+     * @param sequence Última jugada recibida por el cliente.
+     * @return Objeto GameData que representa una reanudación.
+     */
+    public static GameData createResumeData(String token, int sequence) {
+        GameData data = new GameData();
+        data.type = "resume";
+        data.token = token;
+        data.sequence = sequence;
+        return data;
+    }
+
+    /**
+     * Crea y devuelve un objeto GameData con el que un cliente se inscribe con un nombre para jugar torneos.
+     * El servidor responde con el mismo mensaje si lo aceptó, o con el nombre vacío (null) si el nombre ya
+     * está en uso o el cliente ya está en una partida.
+     *
+     * @param name Nombre del jugador.
+     * @return Objeto GameData que representa una inscripción.
+     */
+    public static GameData createRegisterData(String name) {
+        GameData data = new GameData();
+        data.type = "register";
+        data.name = name;
+        return data;
+    }
+
+    /**
+     * Crea y devuelve un objeto GameData de latido. El servidor envía "ping" y el cliente contesta "pong";
+     * así se detectan las conexiones muertas aunque el jugador no esté moviendo.
+     *
+     * @return Objeto GameData que representa un ping.
+     */
+    public static GameData createPingData() {
+        GameData data = new GameData();
+        data.type = "ping";
+        return data;
+    }
+
+    /**
+     * Crea y devuelve el aviso de que el servidor descartó mensajes del cliente por exceder la tasa permitida.
+     *
+     * @return Objeto GameData que representa el aviso.
+     */
+    public static GameData createThrottledData() {
+        GameData data = new GameData();
+        data.type = "throttled";
+        return data;
+    }
+
+    /**
+     * Crea y devuelve la respuesta del cliente a un ping.
+     *
+     * @return Objeto GameData que representa un pong.
+     */
+    public static GameData createPongData() {
+        GameData data = new GameData();
+        data.type = "pong";
+        return data;
+    }
+
     /**
      * Crea y devuelve un objeto GameData que representa un cuadrado en el juego.
      *
@@ -227,4 +333,32 @@ public class GameData {
     public void setClientId(int clientId) {
         this.clientId = clientId;
     }
+
+    public int getRoom() {
+        return room;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getName() {
+        return name;
+    }
 }
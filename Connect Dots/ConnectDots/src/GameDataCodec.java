@@ -0,0 +1,249 @@
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Codificador JSON de GameData escrito a mano, sin reflexión. Produce el mismo formato que Gson
+ * (los clientes lo siguen leyendo con Gson) y evita cargar e inspeccionar clases al arrancar el servidor,
+ * lo que también simplifica la imagen nativa.
+ */
+public final class GameDataCodec {
+
+    private GameDataCodec() {
+    }
+
+    /**
+     * Codifica un GameData en una línea JSON con el mismo orden de campos que Gson.
+     *
+     * @param data Datos a codificar.
+     * @return Texto JSON.
+     */
+    public static String encode(GameData data) {
+        StringBuilder json = new StringBuilder(128);
+        json.append('{');
+        if (data.getType() != null) {
+            appendString(json.append("\"type\":"), data.getType()).append(',');
+        }
+        json.append("\"x\":").append(data.getX())
+                .append(",\"y\":").append(data.getY())
+                .append(",\"startX\":").append(data.getStartX())
+                .append(",\"startY\":").append(data.getStartY())
+                .append(",\"endX\":").append(data.getEndX())
+                .append(",\"endY\":").append(data.getEndY());
+        if (data.getColor() != null) {
+            appendString(json.append(",\"color\":"), data.getColor());
+        }
+        json.append(",\"score\":").append(data.getScore())
+                .append(",\"clientId\":").append(data.getClientId())
+                .append(",\"room\":").append(data.getRoom())
+                .append(",\"players\":").append(data.getPlayers());
+        if (data.getToken() != null) {
+            appendString(json.append(",\"token\":"), data.getToken());
+        }
+        json.append(",\"sequence\":").append(data.getSequence());
+        if (data.getName() != null) {
+            appendString(json.append(",\"name\":"), data.getName());
+        }
+        json.append('}');
+        return json.toString();
+    }
+
+    /**
+     * Decodifica una línea JSON. Los campos desconocidos se ignoran, igual que en Gson.
+     *
+     * @param json Texto JSON de un objeto plano.
+     * @return Datos decodificados.
+     * @throws IllegalArgumentException Si el texto no es un objeto JSON válido.
+     */
+    public static GameData decode(String json) {
+        Parser p = new Parser(json);
+        String type = null;
+        String color = null;
+        String token = null;
+        String name = null;
+        int x = 0, y = 0, startX = 0, startY = 0, endX = 0, endY = 0, score = 0, clientId = 0, room = 0, players = 0, sequence = 0;
+
+        p.expect('{');
+        if (!p.consume('}')) {
+            do {
+                String key = p.readString();
+                p.expect(':');
+                switch (key) {
+                    case "type": type = p.readNullableString(); break;
+                    case "color": color = p.readNullableString(); break;
+                    case "x": x = p.readInt(); break;
+                    case "y": y = p.readInt(); break;
+                    case "startX": startX = p.readInt(); break;
+                    case "startY": startY = p.readInt(); break;
+                    case "endX": endX = p.readInt(); break;
+                    case "endY": endY = p.readInt(); break;
+                    case "score": score = p.readInt(); break;
+                    case "clientId": clientId = p.readInt(); break;
+                    case "room": room = p.readInt(); break;
+                    case "players": players = p.readInt(); break;
+                    case "token": token = p.readNullableString(); break;
+                    case "sequence": sequence = p.readInt(); break;
+                    case "name": name = p.readNullableString(); break;
+                    default: p.skipValue(); break;
+                }
+            } while (p.consume(','));
+            p.expect('}');
+        }
+        return GameData.create(type, x, y, startX, startY, endX, endY, color, score, clientId, room, players, token, sequence, name);
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    /**
+     * Lector mínimo de JSON plano: cadenas, números, booleanos y null. Objetos y arreglos anidados
+     * solo se saltan.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error("se esperaba '" + c + "'");
+            }
+        }
+
+        String readNullableString() {
+            skipWhitespace();
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            return readString();
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = null;
+            int start = pos;
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value == null ? text.substring(start, pos - 1) : value.toString();
+                }
+                if (c == '\\') {
+                    if (value == null) {
+                        value = new StringBuilder(text.substring(start, pos - 1));
+                    }
+                    value.append(unescape());
+                } else if (value != null) {
+                    value.append(c);
+                }
+            }
+            throw error("cadena sin cerrar");
+        }
+
+        private char unescape() {
+            if (pos >= text.length()) {
+                throw error("escape incompleto");
+            }
+            char c = text.charAt(pos++);
+            switch (c) {
+                case 'n': return '\n';
+                case 't': return '\t';
+                case 'r': return '\r';
+                case 'b': return '\b';
+                case 'f': return '\f';
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("escape unicode incompleto");
+                    }
+                    char decoded = (char) Integer.parseInt(text.substring(pos, pos + 4), 16);
+                    pos += 4;
+                    return decoded;
+                default: return c; // Comillas, barra invertida y barra
+            }
+        }
+
+        int readInt() {
+            skipWhitespace();
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("se esperaba un número");
+            }
+            String number = text.substring(start, pos);
+            try {
+                return Integer.parseInt(number);
+            } catch (NumberFormatException e) {
+                return (int) Double.parseDouble(number); // Gson también acepta 1.0 para un int
+            }
+        }
+
+        void skipValue() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("se esperaba un valor");
+            }
+            char c = text.charAt(pos);
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                int depth = 0;
+                boolean inString = false;
+                for (; pos < text.length(); pos++) {
+                    char d = text.charAt(pos);
+                    if (inString) {
+                        if (d == '\\') {
+                            pos++;
+                        } else if (d == '"') {
+                            inString = false;
+                        }
+                    } else if (d == '"') {
+                        inString = true;
+                    } else if (d == '{' || d == '[') {
+                        depth++;
+                    } else if ((d == '}' || d == ']') && --depth == 0) {
+                        pos++;
+                        return;
+                    }
+                }
+                throw error("objeto sin cerrar");
+            } else {
+                while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+                    pos++;
+                }
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("JSON inválido (" + message + ") en la posición " + pos + ": " + text);
+        }
+    }
+}
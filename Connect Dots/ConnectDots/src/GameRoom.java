@@ -0,0 +1,311 @@
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Esta clase representa el estado de una partida de "Connect Dots" sin depender de sockets ni de JavaFX.
+ * Cada línea de la cuadrícula se identifica con un índice de arista y el tablero completo se guarda en
+ * una máscara de bits, de modo que se pueden mantener miles de salas en un mismo proceso.
+ *
+ * La clase no es segura para hilos: quien la use debe sincronizar sobre la sala antes de aplicar jugadas.
+ */
+public class GameRoom {
+    public static final int GRID_SIZE = 4; // Puntos por lado de la cuadrícula
+    public static final int BOXES_PER_SIDE = GRID_SIZE - 1; // Cuadrados por lado
+    public static final int HORIZONTAL_EDGES = GRID_SIZE * BOXES_PER_SIDE; // Líneas horizontales (12)
+    public static final int EDGE_COUNT = 2 * HORIZONTAL_EDGES; // Total de líneas posibles (24)
+    public static final int BOX_COUNT = BOXES_PER_SIDE * BOXES_PER_SIDE; // Total de cuadrados (9)
+    public static final int MAX_PLAYERS = 4; // Máximo de jugadores por sala
+    public static final int FULL_BOARD = (1 << EDGE_COUNT) - 1; // Máscara con todas las líneas dibujadas
+    public static final String[] SEAT_COLORS = {"blue", "red", "yellow", "purple"}; // Color de cada asiento
+
+    // Códigos de error devueltos por applyMove
+    public static final int INVALID_EDGE = -1; // La línea no existe en la cuadrícula
+    public static final int NOT_YOUR_TURN = -2; // El jugador no tiene el turno
+    public static final int EDGE_TAKEN = -3; // La línea ya fue dibujada
+    public static final int GAME_OVER = -4; // La partida ya terminó
+
+    private static final int[] BOX_MASKS = new int[BOX_COUNT]; // Lados de cada cuadrado
+    private static final int[][] EDGE_BOXES = new int[EDGE_COUNT][]; // Cuadrados que toca cada línea
+
+    static {
+        int[] boxesPerEdge = new int[EDGE_COUNT];
+        int[][] tmp = new int[EDGE_COUNT][2];
+        for (int row = 1; row <= BOXES_PER_SIDE; row++) {
+            for (int col = 1; col <= BOXES_PER_SIDE; col++) {
+                int box = boxIndex(row, col);
+                int[] sides = {
+                        horizontalEdge(row, col), // Arriba
+                        horizontalEdge(row + 1, col), // Abajo
+                        verticalEdge(row, col), // Izquierda
+                        verticalEdge(row, col + 1) // Derecha
+                };
+                for (int edge : sides) {
+                    BOX_MASKS[box] |= 1 << edge;
+                    tmp[edge][boxesPerEdge[edge]++] = box;
+                }
+            }
+        }
+        for (int edge = 0; edge < EDGE_COUNT; edge++) {
+            EDGE_BOXES[edge] = java.util.Arrays.copyOf(tmp[edge], boxesPerEdge[edge]);
+        }
+    }
+
+    private final int roomId; // Identificador de la sala
+    private final int playerCount; // Cantidad de jugadores en la sala
+    private final int[] scores; // Puntuación de cada jugador
+    private final byte[] boxOwners = new byte[BOX_COUNT]; // Jugador dueño de cada cuadrado (-1 si no tiene)
+    private int edges; // Máscara de bits con las líneas dibujadas
+    private int currentPlayer; // Índice del jugador que tiene el turno
+    private int sequence; // Cantidad de jugadas aplicadas
+
+    /**
+     * Crea una sala vacía.
+     *
+     * @param roomId      Identificador de la sala.
+     * @param playerCount Cantidad de jugadores (1 a 4).
+     */
+    public GameRoom(int roomId, int playerCount) {
+        if (playerCount < 1 || playerCount > MAX_PLAYERS) {
+            throw new IllegalArgumentException("Cantidad de jugadores inválida: " + playerCount);
+        }
+        this.roomId = roomId;
+        this.playerCount = playerCount;
+        this.scores = new int[playerCount];
+        java.util.Arrays.fill(boxOwners, (byte) -1);
+    }
+
+    /**
+     * Aplica la jugada de un jugador. Igual que en el servidor original, el turno pasa al siguiente
+     * jugador después de cada línea válida, aunque se complete un cuadrado.
+     *
+     * @param player Índice del jugador que juega.
+     * @param edge   Índice de la línea a dibujar.
+     * @return Cantidad de cuadrados completados (0 a 2) o un código de error negativo.
+     */
+    public int applyMove(int player, int edge) {
+        if (edge < 0 || edge >= EDGE_COUNT) {
+            return INVALID_EDGE;
+        }
+        if (isFinished()) {
+            return GAME_OVER;
+        }
+        if (player != currentPlayer) {
+            return NOT_YOUR_TURN;
+        }
+        int bit = 1 << edge;
+        if ((edges & bit) != 0) {
+            return EDGE_TAKEN;
+        }
+        edges |= bit;
+        sequence++;
+
+        // Solo se revisan los cuadrados que toca la línea nueva
+        int completed = 0;
+        for (int box : EDGE_BOXES[edge]) {
+            if ((edges & BOX_MASKS[box]) == BOX_MASKS[box]) {
+                boxOwners[box] = (byte) player;
+                completed++;
+            }
+        }
+        scores[player] += completed;
+        currentPlayer = (currentPlayer + 1) % playerCount;
+        return completed;
+    }
+
+    /**
+     * Pasa el turno al siguiente jugador sin dibujar ninguna línea (por ejemplo, cuando se acaba el tiempo
+     * del turno). No cuenta como jugada, así que no cambia la secuencia.
+     *
+     * @return true si se pasó el turno, false si la partida ya terminó.
+     */
+    public boolean skipTurn() {
+        if (isFinished()) {
+            return false;
+        }
+        currentPlayer = (currentPlayer + 1) % playerCount;
+        return true;
+    }
+
+    /**
+     * Reinicia la sala a un tablero vacío.
+     */
+    public void reset() {
+        edges = 0;
+        sequence = 0;
+        currentPlayer = 0;
+        java.util.Arrays.fill(scores, 0);
+        java.util.Arrays.fill(boxOwners, (byte) -1);
+    }
+
+    /**
+     * Indica si ya se dibujaron todas las líneas.
+     *
+     * @return true si la partida terminó.
+     */
+    public boolean isFinished() {
+        return edges == FULL_BOARD;
+    }
+
+    /**
+     * Obtiene el jugador con mayor puntuación.
+     *
+     * @return Índice del ganador o -1 si hay empate en el primer lugar.
+     */
+    public int getWinner() {
+        int winner = -1;
+        int best = -1;
+        for (int i = 0; i < playerCount; i++) {
+            if (scores[i] > best) {
+                best = scores[i];
+                winner = i;
+            } else if (scores[i] == best) {
+                winner = -1;
+            }
+        }
+        return winner;
+    }
+
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int getEdges() {
+        return edges;
+    }
+
+    public int getScore(int player) {
+        return scores[player];
+    }
+
+    /**
+     * Obtiene una copia de las puntuaciones.
+     *
+     * @return Puntuación de cada jugador.
+     */
+    public int[] getScores() {
+        return scores.clone();
+    }
+
+    /**
+     * Obtiene el dueño de un cuadrado.
+     *
+     * @param box Índice del cuadrado.
+     * @return Índice del jugador o -1 si el cuadrado no está completo.
+     */
+    public int getBoxOwner(int box) {
+        return boxOwners[box];
+    }
+
+    /**
+     * Verifica si una línea ya fue dibujada.
+     *
+     * @param edge Índice de la línea.
+     * @return true si la línea existe.
+     */
+    public boolean hasEdge(int edge) {
+        return (edges & (1 << edge)) != 0;
+    }
+
+    /**
+     * Convierte las coordenadas de una línea (como las envía el cliente) en un índice de arista.
+     *
+     * @param startX Coordenada X de inicio.
+     * @param startY Coordenada Y de inicio.
+     * @param endX   Coordenada X de fin.
+     * @param endY   Coordenada Y de fin.
+     * @return Índice de la línea o -1 si los puntos no son adyacentes o salen de la cuadrícula.
+     */
+    public static int edgeIndex(int startX, int startY, int endX, int endY) {
+        if (startY == endY && Math.abs(startX - endX) == 1) {
+            int col = Math.min(startX, endX);
+            if (startY >= 1 && startY <= GRID_SIZE && col >= 1 && col <= BOXES_PER_SIDE) {
+                return horizontalEdge(startY, col);
+            }
+        } else if (startX == endX && Math.abs(startY - endY) == 1) {
+            int row = Math.min(startY, endY);
+            if (row >= 1 && row <= BOXES_PER_SIDE && startX >= 1 && startX <= GRID_SIZE) {
+                return verticalEdge(row, startX);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Coordenada X del punto de inicio de una línea.
+     *
+     * @param edge Índice de la línea.
+     * @return Coordenada X de inicio.
+     */
+    public static int edgeStartX(int edge) {
+        return edge < HORIZONTAL_EDGES ? edge % BOXES_PER_SIDE + 1 : (edge - HORIZONTAL_EDGES) % GRID_SIZE + 1;
+    }
+
+    /**
+     * Coordenada Y del punto de inicio de una línea.
+     *
+     * @param edge Índice de la línea.
+     * @return Coordenada Y de inicio.
+     */
+    public static int edgeStartY(int edge) {
+        return edge < HORIZONTAL_EDGES ? edge / BOXES_PER_SIDE + 1 : (edge - HORIZONTAL_EDGES) / GRID_SIZE + 1;
+    }
+
+    /**
+     * Coordenada X del punto de fin de una línea.
+     *
+     * @param edge Índice de la línea.
+     * @return Coordenada X de fin.
+     */
+    public static int edgeEndX(int edge) {
+        return edge < HORIZONTAL_EDGES ? edgeStartX(edge) + 1 : edgeStartX(edge);
+    }
+
+    /**
+     * Coordenada Y del punto de fin de una línea.
+     *
+     * @param edge Índice de la línea.
+     * @return Coordenada Y de fin.
+     */
+    public static int edgeEndY(int edge) {
+        return edge < HORIZONTAL_EDGES ? edgeStartY(edge) : edgeStartY(edge) + 1;
+    }
+
+    /**
+     * Máscara con los cuatro lados de un cuadrado.
+     *
+     * @param box Índice del cuadrado.
+     * @return Máscara de bits de sus lados.
+     */
+    public static int boxMask(int box) {
+        return BOX_MASKS[box];
+    }
+
+    /**
+     * Índice de un cuadrado a partir de su punto superior izquierdo.
+     *
+     * @param row Fila del punto (1 a 3).
+     * @param col Columna del punto (1 a 3).
+     * @return Índice del cuadrado.
+     */
+    public static int boxIndex(int row, int col) {
+        return (row - 1) * BOXES_PER_SIDE + (col - 1);
+    }
+
+    private static int horizontalEdge(int row, int col) {
+        return (row - 1) * BOXES_PER_SIDE + (col - 1);
+    }
+
+    private static int verticalEdge(int row, int col) {
+        return HORIZONTAL_EDGES + (row - 1) * GRID_SIZE + (col - 1);
+    }
+}
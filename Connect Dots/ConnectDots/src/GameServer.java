@@ -0,0 +1,1275 @@
+import java.io.*;
+import java.net.*;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Núcleo del servidor de "Connect Dots" sin dependencias de JavaFX. Acepta conexiones, las agrupa en salas
+ * mediante la cola de emparejamiento y aplica las jugadas. Se puede ejecutar sin pantalla desde ServerMain
+ * y administrar a través de AdminServer.
+ *
+ * Las conexiones llegan por el puerto TCP, por un socket de dominio Unix (transport=unix) o, con
+ * transport=loopback, como pares en memoria entregados a connect; el resto del servidor solo ve la interfaz
+ * Connection.
+ *
+ * Cada asiento recibe un token de sesión junto con su color. Si la conexión se cae, el asiento queda reservado
+ * durante sessionGraceMs y el cliente puede volver con un mensaje resume que indica la última jugada que
+ * recibió; el servidor le reenvía solo las jugadas que le faltan.
+ *
+ * Para proteger las partidas en curso, cada conexión y cada sala tienen un límite de tasa (los mensajes de más
+ * se descartan antes de decodificarlos), una línea no puede superar maxInflightBytes y, con el servidor lleno,
+ * se rechazan conexiones nuevas y se aplaza la creación de salas.
+ *
+ * Un cliente que se inscribe con un nombre (mensaje register) deja la cola de emparejamiento y espera las salas
+ * de torneo: tournamentRunner entrega a TournamentScheduler partidas que se juegan en salas del servidor con esos
+ * jugadores.
+ *
+ * Los relojes de turno, los latidos de las conexiones y el vencimiento de las sesiones corren sobre una rueda de
+ * temporizadores: si un jugador no mueve a tiempo se le pasa el turno (o juega un bot por él), las conexiones
+ * que no responden se cierran y los asientos sin reanudar se liberan. Lo que vence se ejecuta en un grupo de
+ * hilos aparte, porque latidos y turnos escriben en sockets; el hilo de la rueda solo lleva la cuenta.
+ *
+ * El estado compartido no pasa por un monitor global: las conexiones, las salas y las salas del clúster que se
+ * están llenando viven en mapas concurrentes (bloqueo por entrada), cada sala se sincroniza sobre sí misma, el
+ * almacén de salas y la tabla de posiciones están repartidos en franjas, y la lista de clientes de una sala se
+ * reemplaza completa al reanudar un asiento, de modo que las difusiones recorren una copia estable.
+ * ConcurrencyStress verifica estas garantías.
+ */
+public class GameServer {
+    private static final long TIMER_TICK_MS = 100; // Precisión de los relojes de turno y los latidos
+    private static final int TIMER_WHEEL_SIZE = 1024; // Casillas de la rueda (una vuelta cubre 102,4 s)
+    private static final int TIMER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors()); // Hilos que ejecutan los temporizadores vencidos
+    private static final int ACCEPT_BACKLOG = 1024; // Conexiones pendientes de aceptar; con la cola llena TCP descarta el intento y el cliente reintenta al segundo
+    private static final int MAX_NAME_LENGTH = 32; // Largo máximo del nombre de un jugador inscrito
+    private static final int REPLAY_QUEUE = 4096; // Repeticiones pendientes de escribir antes de descartar
+    private static final String PING = GameDataCodec.encode(GameData.createPingData()); // Latido del servidor
+    private static final String THROTTLED = GameDataCodec.encode(GameData.createThrottledData()); // Aviso de mensajes descartados
+    // Buffer para codificar mensajes line, uno por hilo que juega o reenvía jugadas: MessageWriter copia los bytes
+    // antes de volver, así que las salas no necesitan uno propio
+    private static final ThreadLocal<byte[]> ENCODE_BUFFER = ThreadLocal.withInitial(() -> new byte[MoveCodec.MAX_MESSAGE_BYTES]);
+    private static final ThreadLocal<BoardBatch> BOT_BOARDS = ThreadLocal.withInitial(() -> new BoardBatch(1)); // Tablero que evalúa el bot en cada hilo de la rueda
+
+    private final ServerConfig config; // Configuración del servidor
+    private final MatchmakingQueue<ClientHandler> matchmaking = new MatchmakingQueue<>(); // Clientes esperando sala
+    private final Set<ClientHandler> connections = ConcurrentHashMap.newKeySet(); // Clientes conectados
+    private final Map<Integer, ServerRoom> rooms = new ConcurrentHashMap<>(); // Salas en juego
+    private final Map<Integer, List<ClientHandler>> routedRooms = new ConcurrentHashMap<>(); // Salas del clúster que se están llenando
+    private final Map<String, ClientHandler> registered = new ConcurrentHashMap<>(); // Jugadores inscritos para torneos, por nombre
+    private volatile SessionRegistry<ServerRoom> sessions; // Tokens de sesión para reanudar partidas (se crea en start)
+    private final RoomStore store = new RoomStore(); // Estado de las partidas fuera del heap
+    private final TokenBucket roomLimiter; // Tasa y ráfaga de jugadas por sala (null sin límite); cada sala guarda sus fichas en su ranura
+    private final Leaderboard leaderboard = new Leaderboard(); // Posiciones de los clientes en las partidas terminadas
+    private ServerSocket serverSocket; // Socket del servidor (null con los transportes unix y loopback)
+    private ServerSocketChannel unixListener; // Socket de dominio Unix (solo con el transporte unix)
+    private ScheduledExecutorService pairingExecutor; // Ejecuta los lotes de emparejamiento
+    private TimingWheel timers; // Relojes de turno, latidos y vencimiento de sesiones
+    private ExecutorService timerTasks; // Ejecuta lo que vence en la rueda: latidos y turnos escriben en sockets
+    private volatile ExecutorService replayWriter; // Escribe las repeticiones fuera del candado de la sala
+    private volatile SessionCapture capture; // Captura de los mensajes recibidos (null si no se captura)
+    private volatile boolean serverRunning = false; // Indica si el servidor está en ejecución
+    private volatile int desiredPlayers; // Jugadores por sala para las siguientes conexiones
+    private volatile String lastResults = ""; // Resultados de la última partida terminada
+    private final AtomicInteger nextClientId = new AtomicInteger(1); // ID del próximo cliente (las conexiones en memoria llegan desde cualquier hilo)
+    private final AtomicInteger nextRoomId = new AtomicInteger(1); // ID de la próxima sala (emparejamiento y torneos)
+
+    /**
+     * Crea el servidor sin abrir el puerto.
+     *
+     * @param config Configuración del servidor.
+     */
+    public GameServer(ServerConfig config) {
+        this.config = config;
+        this.desiredPlayers = config.getDefaultPlayers();
+        this.roomLimiter = TokenBucket.ofRate(config.getRoomRatePerSec(), config.getRoomBurst());
+        ServerMetrics.registerGauge("server.connections", connections::size);
+        ServerMetrics.registerGauge("server.rooms", rooms::size);
+    }
+
+    /**
+     * Abre el puerto de juego e inicia el hilo que acepta conexiones. El puerto queda abierto al regresar.
+     *
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public synchronized void start() throws IOException {
+        if (serverRunning) {
+            return;
+        }
+        boolean loopback = "loopback".equals(config.getTransport());
+        boolean unix = "unix".equals(config.getTransport());
+        serverSocket = loopback || unix ? null : new ServerSocket(config.getPort(), ACCEPT_BACKLOG);
+        unixListener = unix ? openUnixListener() : null;
+        serverRunning = true;
+        pairingExecutor = Executors.newSingleThreadScheduledExecutor();
+        pairingExecutor.scheduleWithFixedDelay(this::formRooms, config.getPairingIntervalMs(), config.getPairingIntervalMs(), TimeUnit.MILLISECONDS);
+        if (!config.getCaptureDir().isEmpty()) {
+            capture = new SessionCapture(Paths.get(config.getCaptureDir(), "sesion-" + System.currentTimeMillis() + SessionCapture.EXTENSION));
+        }
+        AtomicInteger timerThreads = new AtomicInteger();
+        timerTasks = Executors.newFixedThreadPool(TIMER_THREADS, task -> {
+            Thread thread = new Thread(task, "timer-tasks-" + timerThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timers = new TimingWheel("timers", TIMER_TICK_MS, TIMER_WHEEL_SIZE, timerTasks);
+        timers.start();
+        sessions = new SessionRegistry<>(config.getSessionGraceMs(), timers);
+        if (!config.getReplayDir().isEmpty()) {
+            replayWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(REPLAY_QUEUE), task -> {
+                Thread thread = new Thread(task, "replays");
+                thread.setDaemon(true);
+                return thread;
+            }, (task, executor) -> ServerMetrics.increment("replays.dropped")); // Disco atascado: se pierde la repetición, no la partida
+        }
+        if (loopback) {
+            System.out.println("Servidor listo para recibir conexiones en memoria...");
+            return;
+        }
+        if (unix) {
+            System.out.println("Servidor listo para recibir conexiones en " + config.getSocketPath() + "...");
+            ServerSocketChannel listener = unixListener;
+            Thread serverThread = new Thread(() -> unixAcceptLoop(listener), "accept");
+            serverThread.start();
+            return;
+        }
+        System.out.println("Servidor listo para recibir conexiones en el puerto " + serverSocket.getLocalPort() + "...");
+
+        ServerSocket listener = serverSocket;
+        Thread serverThread = new Thread(() -> acceptLoop(listener), "accept");
+        serverThread.start();
+    }
+
+    /**
+     * Acepta conexiones y las deja esperando sala en la cola de emparejamiento. Cada ciclo atiende solo el socket
+     * con el que arrancó: tras un reinicio, el hilo anterior termina aunque el servidor ya vuelva a estar en ejecución.
+     *
+     * @param listener Socket abierto por start.
+     */
+    private void acceptLoop(ServerSocket listener) {
+        try {
+            while (!listener.isClosed()) {
+                connect(new SocketConnection(listener.accept()));
+            }
+        } catch (IOException e) {
+            if (!listener.isClosed()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Abre el socket de dominio Unix. Un archivo de socket que quedó de una ejecución anterior se borra primero.
+     */
+    private ServerSocketChannel openUnixListener() throws IOException {
+        Path path = Paths.get(config.getSocketPath());
+        Files.deleteIfExists(path);
+        ServerSocketChannel listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            listener.bind(UnixDomainSocketAddress.of(path), ACCEPT_BACKLOG);
+        } catch (IOException e) {
+            listener.close();
+            throw e;
+        }
+        return listener;
+    }
+
+    /**
+     * Igual que acceptLoop, sobre el socket de dominio Unix.
+     *
+     * @param listener Canal abierto por start.
+     */
+    private void unixAcceptLoop(ServerSocketChannel listener) {
+        try {
+            while (listener.isOpen()) {
+                connect(new ChannelConnection(listener.accept(), "unix:" + config.getSocketPath()));
+            }
+        } catch (IOException e) {
+            if (listener.isOpen()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Atiende una conexión nueva, venga del puerto TCP o de un par en memoria (LoopbackConnection): la registra,
+     * la deja esperando sala e inicia su hilo. Si el servidor está detenido o lleno, la cierra.
+     *
+     * @param connection Conexión con el cliente.
+     */
+    public void connect(Connection connection) {
+        ClientHandler clientHandler = attach(connection);
+        if (clientHandler != null) {
+            Thread clientThread = new Thread(clientHandler); // Inicia nuevo hilo por cliente que se conecta
+            clientThread.start();
+        }
+    }
+
+    /**
+     * Registra una conexión nueva y la deja esperando sala, sin iniciar su hilo. connect inicia el hilo enseguida;
+     * MoveAllocationCheck, en cambio, entrega las líneas él mismo con ClientHandler.handleLine.
+     *
+     * @param connection Conexión con el cliente.
+     * @return Manejador de la conexión, o null si se rechazó.
+     */
+    ClientHandler attach(Connection connection) {
+        if (!serverRunning || (config.getMaxConnections() > 0 && connections.size() >= config.getMaxConnections())) {
+            ServerMetrics.increment("admission.rejected.connections"); // Servidor lleno: no se acepta a nadie más
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // Ya estaba cerrada
+            }
+            return null;
+        }
+        System.out.println("Cliente conectado desde " + connection.getRemoteAddress());
+
+        int clientId = nextClientId.getAndIncrement(); // Se incrementa el valor para indicar que se cambia de cliente
+        ClientHandler clientHandler = new ClientHandler(connection, clientId);
+        SessionCapture currentCapture = capture;
+        if (currentCapture != null) {
+            currentCapture.opened(clientId);
+        }
+        connections.add(clientHandler);
+        clientHandler.scheduleHeartbeat();
+
+        // Se encola antes de iniciar el hilo, para que un resume inmediato encuentre al cliente en la cola
+        if (!config.isRoutedJoins()) {
+            matchmaking.enqueue(clientHandler, clientHandler.rating(), desiredPlayers);
+        }
+        return clientHandler;
+    }
+
+    /**
+     * Ejecuta un lote de emparejamiento y crea una sala por cada grupo formado.
+     * El color de cada cliente depende de su asiento en la sala, por lo que nunca se sale de la lista de colores.
+     * El lote no forma más grupos de los que caben: los demás jugadores siguen en la cola con su tiempo de espera.
+     */
+    private void formRooms() {
+        try {
+            int available = config.getMaxRooms() > 0 ? config.getMaxRooms() - rooms.size() : Integer.MAX_VALUE;
+            if (available <= 0) {
+                ServerMetrics.increment("admission.deferred.rooms"); // Los jugadores siguen esperando en la cola
+                return;
+            }
+            List<List<ClientHandler>> groups = matchmaking.pairBatch(available, client -> !client.closed);
+            if (groups.size() == available && matchmaking.size() > 0) {
+                ServerMetrics.increment("admission.deferred.rooms"); // El lote se cortó por el máximo de salas
+            }
+            for (List<ClientHandler> group : groups) {
+                openRoom(new ServerRoom(nextRoomId.getAndIncrement(), group.toArray(new ClientHandler[0])));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Un error en un lote no debe detener los siguientes
+        }
+    }
+
+    /**
+     * Indica si se alcanzó el máximo de salas en juego.
+     */
+    private boolean atRoomCapacity() {
+        return config.getMaxRooms() > 0 && rooms.size() >= config.getMaxRooms();
+    }
+
+    /**
+     * Sienta a un cliente en una sala elegida por la pasarela del clúster. La sala empieza cuando
+     * llegan todos sus jugadores.
+     *
+     * @param client  Cliente reenviado por la pasarela.
+     * @param roomId  Sala indicada en el mensaje join.
+     * @param players Jugadores que tendrá la sala.
+     */
+    private void joinRoutedRoom(ClientHandler client, int roomId, int players) {
+        if (players < 1 || players > GameRoom.MAX_PLAYERS || !(matchmaking.remove(client) || config.isRoutedJoins())) {
+            return; // Ya estaba sentado por el emparejamiento local
+        }
+        // Solo se bloquea la entrada de esta sala: las demás salas del clúster se llenan en paralelo
+        ServerRoom[] formed = new ServerRoom[1];
+        List<ClientHandler> seated = routedRooms.compute(roomId, (id, waiting) -> {
+            if (waiting == null) {
+                if (atRoomCapacity()) {
+                    return null; // Sala nueva con el nodo lleno
+                }
+                waiting = new java.util.ArrayList<>(players);
+            }
+            waiting.add(client);
+            client.routedRoomId = roomId;
+            if (waiting.size() < players) {
+                return waiting;
+            }
+            formed[0] = new ServerRoom(roomId, waiting.toArray(new ClientHandler[0]));
+            return null;
+        });
+        if (formed[0] != null) {
+            openRoom(formed[0]);
+        } else if (seated == null) {
+            ServerMetrics.increment("admission.rejected.rooms");
+            try {
+                client.connection.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+    }
+
+    /**
+     * Quita de una sala del clúster que todavía se está llenando a un cliente que se desconectó, para que
+     * otra conexión ocupe su lugar. Si la sala ya se formó no hace nada: openRoom le reserva el asiento.
+     *
+     * @param client Cliente desconectado.
+     */
+    private void leaveRoutedRoom(ClientHandler client) {
+        if (client.routedRoomId < 0) {
+            return;
+        }
+        routedRooms.computeIfPresent(client.routedRoomId, (id, waiting) -> {
+            if (waiting.remove(client)) {
+                ServerMetrics.increment("cluster.seats.abandoned");
+            }
+            return waiting.isEmpty() ? null : waiting;
+        });
+    }
+
+    /**
+     * Ejecutor de partidas de torneo sobre salas reales: sienta a los jugadores inscritos con esos nombres en una
+     * sala nueva del servidor y completa el futuro con las puntuaciones cuando se llena el tablero. La partida
+     * falla si un jugador no está inscrito, ya se desconectó o sigue en otra partida, si el servidor no admite
+     * más salas, o si la sala se descarta sin terminar (vencieron todos los asientos o se detuvo el servidor).
+     *
+     * @return Ejecutor de partidas para TournamentScheduler.
+     */
+    public TournamentScheduler.MatchRunner tournamentRunner() {
+        return (match, names) -> {
+            ServerRoom room;
+            synchronized (registered) { // Dos torneos a la vez no pueden sentar al mismo jugador en dos salas
+                if (!serverRunning || atRoomCapacity()) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("El servidor no admite más salas"));
+                }
+                ClientHandler[] seats = new ClientHandler[names.size()];
+                for (int seat = 0; seat < seats.length; seat++) {
+                    ClientHandler client = registered.get(names.get(seat));
+                    if (client == null || client.closed) {
+                        return CompletableFuture.failedFuture(new IllegalStateException("Jugador no inscrito: " + names.get(seat)));
+                    }
+                    ServerRoom current = client.room;
+                    if (current != null && !current.isFinished()) {
+                        return CompletableFuture.failedFuture(new IllegalStateException("Jugador en otra partida: " + names.get(seat)));
+                    }
+                    seats[seat] = client;
+                }
+                room = new ServerRoom(nextRoomId.getAndIncrement(), seats);
+                room.outcome = new CompletableFuture<>();
+                openRoom(room);
+            }
+            ServerMetrics.increment("tournament.rooms.opened");
+            return room.outcome.thenApply(scores -> new TournamentScheduler.MatchResult(names, scores));
+        };
+    }
+
+    /**
+     * Inscribe al cliente con un nombre para los torneos. Solo se aceptan clientes que esperan sala; al
+     * inscribirse dejan la cola de emparejamiento. Responde con el nombre aceptado o con un nombre vacío.
+     *
+     * @param client Cliente que se inscribe.
+     * @param name   Nombre pedido.
+     */
+    private void register(ClientHandler client, String name) {
+        boolean accepted = false;
+        if (name != null && !name.isBlank() && name.length() <= MAX_NAME_LENGTH && client.name == null) {
+            synchronized (registered) {
+                ClientHandler holder = registered.get(name);
+                if ((holder == null || holder.closed) && (matchmaking.remove(client) || config.isRoutedJoins())) {
+                    registered.put(name, client);
+                    client.name = name;
+                    accepted = true;
+                }
+            }
+        }
+        ServerMetrics.increment(accepted ? "tournament.players.registered" : "tournament.players.rejected");
+        client.sendMessage(GameDataCodec.encode(GameData.createRegisterData(accepted ? name : null)));
+    }
+
+    /**
+     * Nombres de los jugadores inscritos que siguen conectados.
+     *
+     * @return Nombres en orden alfabético.
+     */
+    public List<String> getRegisteredPlayers() {
+        List<String> names = new ArrayList<>();
+        registered.forEach((name, client) -> {
+            if (!client.closed) {
+                names.add(name);
+            }
+        });
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Registra una sala recién formada, sienta a sus jugadores y arranca el reloj del primer turno.
+     *
+     * @param room Sala nueva.
+     */
+    private void openRoom(ServerRoom room) {
+        rooms.put(room.roomId, room);
+        synchronized (room) {
+            for (int seat = 0; seat < room.players.length; seat++) {
+                room.players[seat].joinRoom(room, seat);
+            }
+            for (ClientHandler player : room.players) {
+                if (player.closed) {
+                    player.reserveSeat(); // Se desconectó entre el emparejamiento y la sala: su asiento espera el resume
+                }
+            }
+            room.startTurnClock();
+        }
+    }
+
+    /**
+     * Detiene el servidor y cierra la conexión con todos los clientes.
+     */
+    public synchronized void stop() {
+        serverRunning = false;
+        if (pairingExecutor != null) {
+            pairingExecutor.shutdownNow();
+        }
+        if (timers != null) {
+            timers.stop();
+            timerTasks.shutdown();
+        }
+        if (replayWriter != null) {
+            replayWriter.shutdown(); // Las repeticiones ya encoladas se terminan de escribir
+            replayWriter = null;
+        }
+        if (capture != null) {
+            capture.close();
+            capture = null;
+        }
+        try {
+            if (serverSocket != null && !serverSocket.isClosed()) {
+                serverSocket.close();
+                System.out.println("Servidor cerrado.");
+            }
+            if (unixListener != null && unixListener.isOpen()) {
+                unixListener.close();
+                Files.deleteIfExists(Paths.get(config.getSocketPath()));
+                System.out.println("Servidor cerrado.");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Cerrar los clientes
+        for (ClientHandler client : connections) {
+            try {
+                client.connection.close(); // Cerrar la conexión del cliente
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Limpiar la lista de clientes, la cola de emparejamiento y las salas
+        connections.clear();
+        matchmaking.clear();
+        for (ServerRoom room : rooms.values()) {
+            synchronized (room) {
+                room.release();
+            }
+        }
+        rooms.clear();
+        registered.clear();
+        if (sessions != null) {
+            sessions.clear();
+        }
+        routedRooms.clear();
+    }
+
+    /**
+     * Cierra y vuelve a abrir el servidor, desconectando a todos los clientes.
+     *
+     * @throws IOException Si no se puede volver a abrir el puerto.
+     */
+    public synchronized void restart() throws IOException {
+        stop();
+        nextClientId.set(1);
+        nextRoomId.set(1);
+        lastResults = "";
+        leaderboard.clear(); // Los identificadores de cliente vuelven a empezar
+        start();
+    }
+
+    public boolean isRunning() {
+        return serverRunning;
+    }
+
+    /**
+     * Puerto en el que escucha el servidor (útil si se configuró el puerto 0).
+     *
+     * @return Puerto local o -1 si no está abierto.
+     */
+    public int getLocalPort() {
+        ServerSocket socket = serverSocket;
+        return socket != null ? socket.getLocalPort() : -1;
+    }
+
+    public int getDesiredPlayers() {
+        return desiredPlayers;
+    }
+
+    /**
+     * Cambia la cantidad de jugadores por sala para las siguientes conexiones.
+     *
+     * @param players Jugadores por sala (1 a 4).
+     */
+    public void setDesiredPlayers(int players) {
+        if (players < 1 || players > GameRoom.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Cantidad de jugadores inválida: " + players);
+        }
+        desiredPlayers = players;
+    }
+
+    public String getLastResults() {
+        return lastResults;
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Sala de juego: el estado de la partida y los clientes sentados en ella. El tablero, las puntuaciones,
+     * las jugadas, el inicio del turno, los asientos vencidos y las fichas del límite de jugadas viven en una
+     * ranura de RoomStore; en el heap quedan los clientes, los tokens de sesión y el reloj de turnos.
+     * Las jugadas se aplican sincronizando sobre la sala, así que las partidas de salas distintas no compiten por el mismo bloqueo.
+     */
+    private class ServerRoom {
+        private final int roomId; // Identificador de la sala
+        private final int slot; // Ranura del estado de la partida en el almacén fuera del heap
+        private volatile boolean released = false; // La ranura ya se devolvió al almacén
+        private int finalSequence = 0; // Jugadas aplicadas al devolver la ranura
+        private volatile ClientHandler[] players; // Clientes en orden de asiento; al reanudar se reemplaza por una copia
+        private final long startedAt = System.currentTimeMillis(); // Hora de inicio, base de los tiempos de la repetición
+        private final String[] tokens; // Token de sesión de cada asiento
+        private TimingWheel.Timeout turnClock; // Reloj de turnos; se reprograma al vencer, no en cada jugada
+        private CompletableFuture<int[]> outcome; // Puntuaciones finales para el torneo (null si la sala no es de torneo)
+
+        ServerRoom(int roomId, ClientHandler[] players) {
+            this.roomId = roomId;
+            this.slot = store.allocate(players.length);
+            this.players = players;
+            this.tokens = new String[players.length];
+            for (int seat = 0; seat < tokens.length; seat++) {
+                tokens[seat] = sessions.issue(this);
+            }
+        }
+
+        /**
+         * Aplica una jugada y la publica: la registra, la reenvía a la sala con su secuencia, envía las
+         * puntuaciones si se cerró un cuadrado y cierra la partida si se llenó la cuadrícula.
+         * Se llama con el bloqueo de la sala.
+         *
+         * @param seat Asiento que juega.
+         * @param edge Línea a dibujar.
+         * @return Resultado de GameRoom.applyMove.
+         */
+        private int playMove(int seat, int edge) {
+            int result = released ? GameRoom.GAME_OVER : store.applyMove(slot, seat, edge);
+            if (result < 0) {
+                return result;
+            }
+            ServerMetrics.increment("server.moves");
+            recordMove(edge, seat);
+            store.setTurnStarted(slot, System.nanoTime());
+            byte[] buffer = ENCODE_BUFFER.get();
+            sendToAll(buffer, MoveCodec.encodeLine(buffer, edge, seat, store.getSequence(slot)));
+            if (result > 0) {
+                sendScores(); // Envia el score a todos los clientes
+            }
+            // Si se lleno la cuadricula de lineas, devuelve puntuaciones
+            if (isFinished()) {
+                ServerMetrics.increment("server.games.finished");
+                if (turnClock != null) {
+                    turnClock.cancel();
+                }
+                showResults(); // Publica los resultados
+                saveReplay(); // Guarda la repetición de la partida
+                releaseSessions();
+                rooms.remove(roomId);
+                if (outcome != null) {
+                    int[] scores = new int[players.length];
+                    for (int i = 0; i < scores.length; i++) {
+                        scores[i] = store.getScore(slot, i);
+                    }
+                    outcome.complete(scores);
+                }
+                release();
+                requeuePlayers();
+            }
+            return result;
+        }
+
+        /**
+         * Secuencia actual leída sin el bloqueo de la sala, para la captura de sesiones. Puede estar un poco
+         * atrasada respecto de la que ve el hilo que juega.
+         *
+         * @return Jugadas aplicadas.
+         */
+        private int sequenceHint() {
+            int sequence = store.getSequence(slot);
+            return released ? finalSequence : sequence; // Si se liberó mientras se leía, la ranura puede ser de otra sala
+        }
+
+        /**
+         * Indica si la partida terminó o la sala ya se descartó.
+         */
+        private boolean isFinished() {
+            return released || store.isFinished(slot);
+        }
+
+        /**
+         * Devuelve la ranura al almacén. Se llama con el bloqueo de la sala; después la sala ya no toca la ranura,
+         * que puede pasar a otra partida.
+         */
+        private void release() {
+            if (!released) {
+                finalSequence = store.getSequence(slot);
+                released = true; // Escritura volátil: publica finalSequence antes de que la ranura cambie de dueño
+                store.free(slot);
+                if (outcome != null && !outcome.isDone()) {
+                    outcome.completeExceptionally(new IllegalStateException("La sala " + roomId + " se descartó sin terminar"));
+                }
+            }
+        }
+
+        /**
+         * Arranca el reloj de turnos de la sala. Se llama con el bloqueo de la sala al abrirla.
+         */
+        private void startTurnClock() {
+            store.setTurnStarted(slot, System.nanoTime());
+            armTurnClock(config.getTurnTimeoutMs());
+        }
+
+        private void armTurnClock(long delayMillis) {
+            if (config.getTurnTimeoutMs() > 0 && !isFinished()) {
+                turnClock = timers.schedule(this::turnClockFired, delayMillis);
+            }
+        }
+
+        /**
+         * Vence el reloj de la sala. Las jugadas no reprograman el reloj (así no crean temporizadores);
+         * solo mueven el inicio del turno. Si hubo una jugada desde que se programó, el reloj se vuelve a
+         * programar para lo que le queda al turno actual; si no, se pasa el turno o un bot juega por el ausente.
+         */
+        private synchronized void turnClockFired() {
+            if (isFinished() || rooms.get(roomId) != this) {
+                return; // La sala terminó o se descartó
+            }
+            long remainingNanos = store.getTurnStarted(slot) + TimeUnit.MILLISECONDS.toNanos(config.getTurnTimeoutMs()) - System.nanoTime();
+            if (remainingNanos > 0) {
+                armTurnClock(TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1);
+                return;
+            }
+            ServerMetrics.increment("server.turns.expired");
+            if ("bot".equals(config.getTurnTimeoutAction())) {
+                ServerMetrics.increment("server.turns.bot");
+                playMove(store.getCurrentPlayer(slot), botMove());
+            } else {
+                ServerMetrics.increment("server.turns.skipped");
+                store.skipTurn(slot);
+                store.setTurnStarted(slot, System.nanoTime());
+            }
+            armTurnClock(config.getTurnTimeoutMs());
+        }
+
+        /**
+         * Elige la jugada del bot con BoardBatch: cierra un cuadrado si puede, si no evita dejar un cuadrado con
+         * tres lados y, si no queda otra, dibuja cualquier línea libre. Entre las del grupo toma la primera desde
+         * una posición al azar.
+         *
+         * @return Línea elegida.
+         */
+        private int botMove() {
+            BoardBatch boards = BOT_BOARDS.get();
+            boards.clear();
+            int board = boards.add(store.getEdges(slot));
+            boards.evaluate();
+            int moves = boards.getPreferred(board);
+            int after = moves & (-1 << java.util.concurrent.ThreadLocalRandom.current().nextInt(GameRoom.EDGE_COUNT));
+            return Integer.numberOfTrailingZeros(after != 0 ? after : moves);
+        }
+
+        /**
+         * Busca el asiento de un token.
+         *
+         * @param token Token de sesión.
+         * @return Asiento o -1 si el token no es de esta sala.
+         */
+        private int seatOf(String token) {
+            for (int seat = 0; seat < tokens.length; seat++) {
+                if (tokens[seat].equals(token)) {
+                    return seat;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Envía a un cliente las jugadas posteriores a la última que recibió, reconstruidas desde el registro
+         * de jugadas de la sala, y la puntuación actual. Con la sala liberada no envía nada: la ranura puede ser
+         * ya de otra sala.
+         *
+         * @param client Cliente que se reconecta.
+         * @param acked  Última jugada que el cliente confirmó haber recibido.
+         */
+        private synchronized void sendMovesSince(ClientHandler client, int acked) {
+            if (released) {
+                return;
+            }
+            byte[] buffer = ENCODE_BUFFER.get();
+            for (int i = Math.max(acked, 0); i < store.getSequence(slot); i++) {
+                int length = MoveCodec.encodeLine(buffer, ReplayFile.moveEdge(store.move(slot, i)), ReplayFile.movePlayer(store.move(slot, i)), i + 1);
+                client.sendMessage(buffer, length);
+                ServerMetrics.increment("session.resent.moves");
+            }
+            for (int seat = 0; seat < players.length; seat++) {
+                client.sendMessage(MoveCodec.scoreMessage(seat, store.getScore(slot, seat)));
+            }
+        }
+
+        /**
+         * Marca como vencida la reserva de un asiento. Cuando vencen todas, la sala se descarta.
+         */
+        private synchronized void expireSeat() {
+            if (!released && store.expireSeat(slot) == players.length) {
+                rooms.remove(roomId, this);
+                release();
+            }
+        }
+
+        /**
+         * Descarta los tokens de la sala al terminar la partida.
+         */
+        private void releaseSessions() {
+            for (String token : tokens) {
+                sessions.release(token);
+            }
+        }
+
+        /**
+         * Registra una jugada ya aplicada para la repetición.
+         *
+         * @param edge Línea dibujada.
+         * @param seat Asiento del jugador.
+         */
+        private void recordMove(int edge, int seat) {
+            store.recordMove(slot, store.getSequence(slot) - 1, ReplayFile.packMove(edge, seat, System.currentTimeMillis() - startedAt));
+        }
+
+        /**
+         * Exporta la partida terminada a un archivo de repetición. Las jugadas se copian aquí, antes de liberar la
+         * ranura; el archivo lo escribe el hilo de repeticiones para no frenar la sala con el disco.
+         */
+        private void saveReplay() {
+            ExecutorService writer = replayWriter;
+            if (writer == null) {
+                return;
+            }
+            String[] seatColors = Arrays.copyOf(GameRoom.SEAT_COLORS, players.length);
+            Path file = Paths.get(config.getReplayDir(), "sala-" + roomId + "-" + startedAt + ReplayFile.EXTENSION);
+            int[] moves = store.moves(slot);
+            writer.execute(() -> {
+                try {
+                    ReplayFile.write(file, seatColors, startedAt, moves, moves.length);
+                    ServerMetrics.increment("replays.written");
+                } catch (IOException e) {
+                    ServerMetrics.increment("replays.failed");
+                    e.printStackTrace();
+                }
+            });
+        }
+
+        /**
+         * Envía un mensaje a todos los clientes de la sala.
+         *
+         * @param message Buffer con el mensaje.
+         * @param length  Cantidad de bytes del mensaje.
+         */
+        private void sendToAll(byte[] message, int length) {
+            for (ClientHandler client : players) { // Una sola lectura del arreglo: la difusión no ve reemplazos a medias
+                client.sendMessage(message, length);
+            }
+        }
+
+        /**
+         * Envía la puntuación de cada jugador a todos los clientes de la sala.
+         */
+        private void sendScores() {
+            for (int seat = 0; seat < players.length; seat++) {
+                byte[] scoreMessage = MoveCodec.scoreMessage(seat, store.getScore(slot, seat)); // Mensaje precalculado
+                sendToAll(scoreMessage, scoreMessage.length);
+            }
+        }
+
+        /**
+         * Publica los score finales para la consola de administración.
+         */
+        private void showResults() {
+            // Ordena los asientos por puntuación
+            Integer[] order = new Integer[players.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> store.getScore(slot, b) - store.getScore(slot, a));
+
+            // Crea un mensaje con los resultados
+            StringBuilder message = new StringBuilder("!JuegoTerminado! Sala " + roomId + ":\nResultados:\n");
+            for (int i = 0; i < order.length; i++) {
+                ClientHandler client = players[order[i]];
+                message.append("Puesto ").append(i + 1).append(": Cliente ").append(client.getClientId()).append(" - Puntuación ").append(store.getScore(slot, order[i])).append("\n");
+            }
+            lastResults = message.toString();
+            System.out.print(lastResults);
+
+            int winner = store.getWinner(slot);
+            for (int seat = 0; seat < players.length; seat++) {
+                leaderboard.record(players[seat].playerId, store.getScore(slot, seat), seat == winner);
+            }
+        }
+
+        /**
+         * Con rematch activo, los jugadores que siguen conectados vuelven a la cola con el rating que les dejó
+         * la partida.
+         */
+        private void requeuePlayers() {
+            if (!config.isRematch() || config.isRoutedJoins() || !serverRunning) {
+                return;
+            }
+            for (ClientHandler client : players) {
+                if (!client.closed && client.name == null) { // Los inscritos esperan la próxima sala de su torneo
+                    matchmaking.enqueue(client, client.rating(), players.length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clase interna que maneja la comunicación con un cliente.
+     */
+    class ClientHandler implements Runnable {
+        private Connection connection; // Conexión con el cliente (TCP o en memoria)
+        private MessageWriter out; // Envia mensajes al cliente
+        private int clientId; // Identificador para cada cliente
+        private int playerId; // Jugador en la tabla de posiciones (el de la conexión original si hubo resume)
+        private volatile boolean closed = false; // El hilo del cliente ya terminó
+        private int routedRoomId = -1; // Sala del clúster en la que espera jugadores (-1 si no llegó por la pasarela)
+        private volatile String name; // Nombre inscrito para los torneos (null si no se inscribió)
+        private String clientColor; // Color asignado a cada cliente
+        private int seat; // Asiento del cliente en su sala
+        private volatile ServerRoom room; // Sala asignada por el emparejamiento (null mientras espera)
+        private volatile long lastInboundNanos = System.nanoTime(); // Última línea recibida del cliente
+        private final AtomicReference<TimingWheel.Timeout> heartbeat = new AtomicReference<>(); // Próximo latido (lo cambian el latido y el cierre)
+        private final TokenBucket messageLimiter = TokenBucket.ofRate(config.getConnectionRatePerSec(), config.getConnectionBurst()); // Límite de mensajes de la conexión
+        private int throttledInRow = 0; // Mensajes descartados seguidos por la tasa de la conexión
+        private boolean throttleNotified = false; // Ya se avisó la racha de descartes actual
+
+        /**
+         * Constructor de ClientHandler.
+         *
+         * @param connection Conexión con el cliente.
+         * @param clientId     Identificador único del cliente.
+         */
+        public ClientHandler(Connection connection, int clientId) {
+            try {
+                this.connection = connection;
+                this.clientId = clientId;
+                this.playerId = clientId;
+                this.out = new MessageWriter(connection.getOutputStream()); // Inicializa el escritor de mensajes
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Sienta al cliente en una sala y le envía su color.
+         *
+         * @param room Sala asignada.
+         * @param seat Asiento dentro de la sala.
+         */
+        private void joinRoom(ServerRoom room, int seat) {
+            this.seat = seat;
+            this.clientColor = GameRoom.SEAT_COLORS[seat];
+            this.room = room; // Escritura volátil: publica el asiento y el color al hilo del cliente
+            sendColorToClient(); // Enviar el color al cliente recién sentado
+        }
+
+        /**
+         * Realiza todas la verificaciones sobre lineas y cuadrados.
+         */
+        @Override
+        public void run() {
+            try {
+                BoundedLineReader in = new BoundedLineReader(connection.getInputStream(), config.getMaxInflightBytes());
+
+                int length;
+                while ((length = in.readLineBytes()) >= 0) {
+                    if (!handleLine(in, length)) {
+                        break; // handleLine pidió cerrar la conexión
+                    }
+                }
+
+                connection.close();
+            } catch (BoundedLineReader.LineTooLongException e) {
+                ServerMetrics.increment("limits.inflight.exceeded"); // Se corta la conexión en lugar de acumular la línea
+                try {
+                    connection.close();
+                } catch (IOException ignored) {
+                    // Ya estaba cerrado
+                }
+            } catch (IOException e) {
+                if (serverRunning && !connection.isClosed()) { // Una conexión cerrada por el latido no es un error
+                    e.printStackTrace();
+                }
+            } finally {
+                closed = true; // Antes de leer room: openRoom revisa closed después de sentarlo
+                SessionCapture currentCapture = capture;
+                if (currentCapture != null) {
+                    ServerRoom currentRoom = room;
+                    currentCapture.closed(clientId, currentRoom != null ? currentRoom.sequenceHint() : -1);
+                }
+                matchmaking.remove(this); // Si se desconecta esperando sala, deja de ocupar la cola
+                leaveRoutedRoom(this); // Lo mismo en una sala del clúster que se está llenando
+                if (name != null) {
+                    registered.remove(name, this);
+                }
+                connections.remove(this);
+                TimingWheel.Timeout nextHeartbeat = heartbeat.getAndSet(null);
+                if (nextHeartbeat != null) {
+                    nextHeartbeat.cancel();
+                }
+                reserveSeat();
+            }
+        }
+
+        /**
+         * Procesa una línea recibida: la captura, aplica el límite de tasa de la conexión y atiende la jugada o el
+         * mensaje que trae. Es todo el trabajo del hilo del cliente por línea; MoveAllocationCheck lo llama
+         * directamente para medir el camino de una jugada tal como lo recorre el servidor.
+         *
+         * @param in     Lector que acaba de leer la línea.
+         * @param length Largo de la línea.
+         * @return false si la conexión se debe cerrar.
+         */
+        boolean handleLine(BoundedLineReader in, int length) {
+            lastInboundNanos = System.nanoTime(); // Cualquier línea, incluido un pong, prueba que sigue vivo
+            SessionCapture currentCapture = capture;
+            if (currentCapture != null) {
+                ServerRoom currentRoom = room;
+                currentCapture.message(clientId, currentRoom != null ? currentRoom.sequenceHint() : -1, in.lineBytes(), length);
+            }
+
+            // Los mensajes por encima de la tasa se descartan sin decodificarlos
+            if (messageLimiter != null && !messageLimiter.tryAcquire()) {
+                ServerMetrics.increment("limits.connection.dropped");
+                notifyThrottled();
+                if (config.getMaxThrottledMessages() > 0 && ++throttledInRow >= config.getMaxThrottledMessages()) {
+                    ServerMetrics.increment("limits.connection.closed"); // Siguió por encima de la tasa pese al aviso
+                    return false;
+                }
+                return true;
+            }
+            throttledInRow = 0;
+            throttleNotified = false;
+
+            // Camino rápido: una línea se lee de los bytes directamente a un índice de arista,
+            // verificando adyacencia y orientación, sin crear objetos
+            int edge = MoveCodec.parseLine(in.lineBytes(), length);
+            if (edge == MoveCodec.NOT_A_MOVE) {
+                // Parsea el resto de los mensajes recibidos desde el cliente
+                GameData data;
+                try {
+                    data = GameDataCodec.decode(in.lineString(length));
+                } catch (IllegalArgumentException e) {
+                    ServerMetrics.increment("server.messages.invalid"); // Una línea dañada no corta la conexión
+                    return true;
+                }
+
+                // Un cliente que perdió la conexión pide volver a su asiento
+                if ("resume".equals(data.getType()) && room == null) {
+                    resume(data.getToken(), data.getSequence());
+                    return true;
+                }
+
+                // Un jugador se inscribe para los torneos mientras espera sala
+                if ("register".equals(data.getType()) && room == null) {
+                    register(this, data.getName());
+                    return true;
+                }
+
+                // La pasarela del clúster indica la sala antes de cualquier jugada
+                if ("join".equals(data.getType()) && room == null) {
+                    joinRoutedRoom(this, data.getRoom(), data.getPlayers());
+                    return true;
+                }
+                if (!"line".equals(data.getType())) {
+                    return true;
+                }
+                edge = GameRoom.edgeIndex(data.getStartX(), data.getStartY(), data.getEndX(), data.getEndY());
+            }
+
+            // Las jugadas solo cuentan cuando el cliente ya tiene sala
+            ServerRoom currentRoom = room;
+            if (currentRoom == null) {
+                return true;
+            }
+            synchronized (currentRoom) {
+                if (currentRoom.players[seat] != this) {
+                    return true; // Otra conexión reanudó este asiento
+                }
+                if (roomLimiter != null && !currentRoom.released && !store.tryAcquireMove(currentRoom.slot, roomLimiter)) {
+                    // No cuenta para cerrar la conexión: la tasa de la sala la gastan todos sus jugadores
+                    ServerMetrics.increment("limits.room.dropped");
+                    notifyThrottled();
+                    return true;
+                }
+                // Reenvía la línea con el color del emisor a los clientes de la sala
+                int result = currentRoom.playMove(seat, edge);
+                if (result == GameRoom.EDGE_TAKEN) {
+                    // Si las coordenadas están ocupadas, no se permite dibujar la línea
+                    System.out.println("El cliente " + clientId + " no puede dibujar una línea en coordenadas ocupadas.");
+                }
+                if (result < 0) {
+                    ServerMetrics.increment("server.moves.rejected");
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Programa el siguiente latido de la conexión.
+         */
+        private void scheduleHeartbeat() {
+            if (config.getHeartbeatIntervalMs() > 0 && !closed && !connection.isClosed()) {
+                TimingWheel.Timeout next = timers.schedule(this::heartbeat, config.getHeartbeatIntervalMs());
+                heartbeat.set(next);
+                if (closed) {
+                    next.cancel(); // El cierre pudo cancelar el latido anterior mientras se programaba este
+                }
+            }
+        }
+
+        /**
+         * Cierra la conexión si no envió nada durante idleTimeoutMs o si la escritura falla; si no, le envía
+         * un ping (el cliente responde con pong) y programa el siguiente latido.
+         */
+        private void heartbeat() {
+            if (closed) {
+                return;
+            }
+            long idleNanos = System.nanoTime() - lastInboundNanos;
+            if (config.getIdleTimeoutMs() > 0 && idleNanos > TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMs())) {
+                ServerMetrics.increment("server.connections.idle");
+                closeConnection();
+                return;
+            }
+            sendMessage(PING);
+            if (out.checkError()) {
+                ServerMetrics.increment("server.connections.dead"); // El par ya no existe aunque readLine no lo haya notado
+                closeConnection();
+                return;
+            }
+            scheduleHeartbeat();
+        }
+
+        private void closeConnection() {
+            try {
+                connection.close(); // El hilo del cliente sale de readLine y libera el asiento
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+
+        /**
+         * Si el cliente estaba jugando, reserva su asiento durante el tiempo de gracia para que pueda reanudar.
+         */
+        private void reserveSeat() {
+            ServerRoom currentRoom = room;
+            if (currentRoom == null || !serverRunning) {
+                return;
+            }
+            synchronized (currentRoom) {
+                if (currentRoom.players[seat] == this && !currentRoom.isFinished()) {
+                    ServerMetrics.increment("session.disconnected");
+                    sessions.disconnected(currentRoom.tokens[seat], currentRoom::expireSeat);
+                }
+            }
+        }
+
+        /**
+         * Reanuda un asiento reservado en esta conexión. Responde con el color y el token, seguidos de las
+         * jugadas posteriores a la última confirmada por el cliente, en un solo viaje.
+         *
+         * @param token Token de sesión del asiento.
+         * @param acked Última jugada recibida por el cliente.
+         */
+        private void resume(String token, int acked) {
+            if (!(matchmaking.remove(this) || config.isRoutedJoins())) {
+                ServerMetrics.increment("session.resume.failed"); // El emparejamiento ya lo sentó en otra sala
+                return;
+            }
+            ServerRoom target = sessions.reclaim(token);
+            int targetSeat = target != null ? target.seatOf(token) : -1;
+            if (targetSeat < 0) {
+                rejectResume();
+                return;
+            }
+            ClientHandler previous;
+            synchronized (target) {
+                if (target.released) {
+                    // La sala se liberó entre reclaim y el candado (terminó o vencieron los demás asientos)
+                    rejectResume();
+                    return;
+                }
+                ClientHandler[] seats = target.players.clone(); // Copia al escribir: las difusiones en curso conservan la anterior
+                previous = seats[targetSeat];
+                playerId = previous.playerId; // Conserva el rating del jugador
+                seats[targetSeat] = this;
+                target.players = seats;
+                joinRoom(target, targetSeat);
+                target.sendMovesSince(this, acked);
+            }
+            ServerMetrics.increment("session.resumed");
+            if (previous != this && previous.name != null) {
+                inherit(previous);
+            }
+            if (previous != this) {
+                try {
+                    previous.connection.close(); // La conexión anterior puede seguir medio abierta
+                } catch (IOException e) {
+                    // Ya estaba cerrada
+                }
+            }
+        }
+
+        /**
+         * Pasa a esta conexión la inscripción de la conexión anterior del mismo asiento, para que el jugador siga
+         * en las próximas rondas de su torneo.
+         */
+        private void inherit(ClientHandler previous) {
+            synchronized (registered) {
+                ClientHandler holder = registered.get(previous.name);
+                if (holder == null || holder == previous || holder.closed) {
+                    registered.put(previous.name, this);
+                    name = previous.name;
+                }
+            }
+        }
+
+        /**
+         * Avisa al cliente que se descartaron mensajes suyos por exceso de tasa. Se avisa una vez por racha, así
+         * un cliente que inunda no recibe una respuesta por cada mensaje descartado.
+         */
+        private void notifyThrottled() {
+            if (!throttleNotified) {
+                throttleNotified = true;
+                sendMessage(THROTTLED);
+            }
+        }
+
+        /**
+         * Responde a un resume que no se puede cumplir y deja al cliente esperando sala.
+         */
+        private void rejectResume() {
+            ServerMetrics.increment("session.resume.failed");
+            sendMessage(GameDataCodec.encode(GameData.createResumeData(null, 0)));
+            if (!config.isRoutedJoins()) {
+                matchmaking.enqueue(this, rating(), desiredPlayers); // Vuelve a esperar sala
+            }
+        }
+
+        /**
+         * @return true si el cliente está sentado en una sala cuya partida sigue en curso.
+         */
+        boolean isPlaying() {
+            ServerRoom currentRoom = room;
+            return currentRoom != null && !currentRoom.isFinished();
+        }
+
+        /**
+         * @return Asiento del cliente en su sala (válido mientras isPlaying).
+         */
+        int getSeat() {
+            return seat;
+        }
+
+        /**
+         * Obtiene cliente actual.
+         *
+         * @return Numero de cliente.
+         */
+        public int getClientId() {
+            return clientId;
+        }
+
+        /**
+         * @return Rating del jugador para la cola de emparejamiento.
+         */
+        private int rating() {
+            return leaderboard.rating(playerId);
+        }
+
+
+        /**
+         * Envía el color asignado al cliente recién conectado.
+         */
+        private void sendColorToClient() {
+            GameData colorData = GameData.createColorData(clientColor);
+            colorData.setToken(room.tokens[seat]);
+            sendMessage(GameDataCodec.encode(colorData));
+        }
+
+        /**
+         * Envía un mensaje al cliente.
+         *
+         * @param message Mensaje a enviar al cliente.
+         */
+        private void sendMessage(String message) {
+            out.send(message);
+        }
+
+        /**
+         * Envía un mensaje ya codificado al cliente.
+         *
+         * @param message Bytes del mensaje.
+         */
+        private void sendMessage(byte[] message) {
+            out.send(message);
+        }
+
+        /**
+         * Envía los primeros bytes de un buffer como mensaje.
+         *
+         * @param buffer Buffer con el mensaje.
+         * @param length Cantidad de bytes del mensaje.
+         */
+        private void sendMessage(byte[] buffer, int length) {
+            out.send(buffer, 0, length);
+        }
+    }
+}
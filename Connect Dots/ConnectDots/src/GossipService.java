@@ -0,0 +1,343 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Membresía del clúster por gossip sobre TCP. Periódicamente cada miembro incrementa su latido, elige un
+ * compañero al azar (o una semilla si todavía no conoce a nadie) e intercambia con él la lista completa de
+ * miembros. Los miembros que no avanzan su latido durante failureTimeoutMs se dan por caídos.
+ *
+ * Cada miembro anuncia también su generación, la hora en que arrancó. Las vistas se comparan por el par
+ * (generación, latido): un nodo reiniciado cuenta latidos desde cero, pero su generación nueva gana a todo lo
+ * anterior, así que vuelve al clúster en la primera ronda. Los caídos dejan una lápida con su último par, que
+ * descarta las noticias viejas que todavía circulan; pasado TOMBSTONE_TTL_FACTOR veces failureTimeoutMs ya
+ * nadie las repite y la lápida se borra.
+ *
+ * Solo los miembros con puerto de juego entran al anillo de salas; las pasarelas participan con puerto 0.
+ * Formato de cada línea: "member id host puertoJuego puertoGossip generación latido"; el mensaje termina con "end".
+ */
+public class GossipService {
+    private static final int CONNECT_TIMEOUT_MS = 500; // Tiempo máximo para conectar con un compañero
+    private static final int TOMBSTONE_TTL_FACTOR = 4; // Vida de una lápida, en múltiplos de failureTimeoutMs
+
+    /**
+     * Miembro conocido del clúster.
+     */
+    public static final class Member {
+        private final String id;
+        private final String host;
+        private final int gamePort;
+        private final int gossipPort;
+        private final long generation; // Hora de arranque del miembro: cambia con cada reinicio
+        private volatile long heartbeat; // Latido más alto visto
+        private volatile long lastSeenNanos; // Momento en que el latido avanzó por última vez
+
+        Member(String id, String host, int gamePort, int gossipPort, long generation, long heartbeat) {
+            this.id = id;
+            this.host = host;
+            this.gamePort = gamePort;
+            this.gossipPort = gossipPort;
+            this.generation = generation;
+            this.heartbeat = heartbeat;
+            this.lastSeenNanos = System.nanoTime();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getGamePort() {
+            return gamePort;
+        }
+
+        public int getGossipPort() {
+            return gossipPort;
+        }
+
+        /**
+         * Indica si esta vista es más nueva que un par (generación, latido).
+         */
+        boolean isNewerThan(long otherGeneration, long otherHeartbeat) {
+            return generation > otherGeneration || (generation == otherGeneration && heartbeat > otherHeartbeat);
+        }
+    }
+
+    /**
+     * Último par (generación, latido) de un miembro caído y momento en que la lápida vence.
+     */
+    private static final class Tombstone {
+        private final long generation;
+        private final long heartbeat;
+        private final long expiresAtNanos;
+
+        Tombstone(long generation, long heartbeat, long expiresAtNanos) {
+            this.generation = generation;
+            this.heartbeat = heartbeat;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final ServerConfig config; // Identidad, semillas y tiempos
+    private final Member self; // Este miembro
+    private final Map<String, Member> members = new ConcurrentHashMap<>(); // Miembros vivos, incluido este
+    private final Map<String, Tombstone> tombstones = new ConcurrentHashMap<>(); // Último par de cada miembro caído
+    private final ConsistentHashRing ring = new ConsistentHashRing(); // Dueños de las salas
+    private final List<InetSocketAddress> seeds = new ArrayList<>(); // Direcciones semilla
+    private ServerSocket gossipSocket;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Crea el servicio de gossip.
+     *
+     * @param config   Configuración con nodeId, host, gossipPort y seeds.
+     * @param gamePort Puerto de juego que se anuncia (0 si este miembro no es dueño de salas).
+     */
+    public GossipService(ServerConfig config, int gamePort) {
+        this.config = config;
+        this.self = new Member(config.getNodeId(), config.getHost(), gamePort, config.getGossipPort(), System.currentTimeMillis(), 0);
+        for (String seed : config.getSeeds().split(",")) {
+            if (!seed.isBlank()) {
+                String[] parts = seed.trim().split(":");
+                seeds.add(new InetSocketAddress(parts[0], Integer.parseInt(parts[1])));
+            }
+        }
+        addMember(self);
+        ServerMetrics.registerGauge("cluster.members", members::size);
+        ServerMetrics.registerGauge("cluster.tombstones", tombstones::size);
+    }
+
+    /**
+     * Abre el puerto de gossip e inicia las rondas periódicas.
+     *
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public void start() throws IOException {
+        gossipSocket = new ServerSocket(config.getGossipPort());
+        Thread acceptThread = new Thread(() -> {
+            while (!gossipSocket.isClosed()) {
+                try (Socket peer = gossipSocket.accept()) {
+                    peer.setSoTimeout(CONNECT_TIMEOUT_MS);
+                    exchange(peer, false);
+                } catch (IOException e) {
+                    // Un compañero que falla no afecta a los demás
+                } catch (RuntimeException e) {
+                    ServerMetrics.increment("cluster.gossip.failures");
+                    e.printStackTrace(); // Ni siquiera un error inesperado detiene este hilo
+                }
+            }
+        }, "gossip");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::gossipRound, 0, config.getGossipIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene el gossip.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        try {
+            if (gossipSocket != null) {
+                gossipSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Obtiene el miembro dueño de una sala.
+     *
+     * @param roomId Identificador de la sala.
+     * @return Miembro dueño o null si no hay nodos de juego conocidos.
+     */
+    public Member ownerOf(int roomId) {
+        String owner = ring.ownerOf(roomId);
+        return owner != null ? members.get(owner) : null;
+    }
+
+    /**
+     * Miembros vivos conocidos, incluido este.
+     *
+     * @return Lista de miembros.
+     */
+    public List<Member> members() {
+        return new ArrayList<>(members.values());
+    }
+
+    /**
+     * Una ronda: avanza el latido propio, intercambia con un compañero y expulsa a los caídos.
+     */
+    private void gossipRound() {
+        try {
+            self.heartbeat++;
+            self.lastSeenNanos = System.nanoTime();
+            InetSocketAddress target = pickPeer();
+            if (target != null) {
+                try (Socket peer = new Socket()) {
+                    peer.connect(target, CONNECT_TIMEOUT_MS);
+                    peer.setSoTimeout(CONNECT_TIMEOUT_MS);
+                    exchange(peer, true);
+                    ServerMetrics.increment("cluster.gossip.rounds");
+                } catch (IOException e) {
+                    ServerMetrics.increment("cluster.gossip.failures");
+                }
+            }
+            expireMembers();
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Una ronda fallida no debe detener las siguientes
+        }
+    }
+
+    private InetSocketAddress pickPeer() {
+        List<Member> peers = new ArrayList<>();
+        for (Member member : members.values()) {
+            if (member != self) {
+                peers.add(member);
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (!peers.isEmpty() && (seeds.isEmpty() || random.nextInt(4) != 0)) {
+            Member peer = peers.get(random.nextInt(peers.size()));
+            return new InetSocketAddress(peer.host, peer.gossipPort);
+        }
+        // Las semillas se siguen visitando de vez en cuando para unir particiones
+        return seeds.isEmpty() ? null : seeds.get(random.nextInt(seeds.size()));
+    }
+
+    /**
+     * Intercambio de vistas: quien inicia envía primero y luego lee; quien recibe hace lo contrario.
+     */
+    private void exchange(Socket peer, boolean initiator) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(peer.getInputStream()));
+        PrintWriter out = new PrintWriter(peer.getOutputStream(), false);
+        if (initiator) {
+            writeView(out);
+            readView(in);
+        } else {
+            readView(in);
+            writeView(out);
+        }
+    }
+
+    private void writeView(PrintWriter out) {
+        for (Member member : members.values()) {
+            out.println("member " + member.id + " " + member.host + " " + member.gamePort + " " + member.gossipPort + " " + member.generation + " " + member.heartbeat);
+        }
+        out.println("end");
+        out.flush();
+    }
+
+    /**
+     * Lee la vista de un compañero hasta "end". Las líneas mal formadas (campos que faltan, números inválidos,
+     * puertos fuera de rango) se descartan y se cuentan en cluster.gossip.malformed.
+     */
+    private void readView(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null && !"end".equals(line)) {
+            Member seen = parseMember(line);
+            if (seen != null) {
+                merge(seen);
+            } else {
+                ServerMetrics.increment("cluster.gossip.malformed");
+            }
+        }
+    }
+
+    /**
+     * @return Miembro descrito por la línea, o null si la línea no es válida.
+     */
+    private static Member parseMember(String line) {
+        String[] parts = line.split(" ");
+        if (parts.length != 7 || !"member".equals(parts[0]) || parts[1].isEmpty() || parts[2].isEmpty()) {
+            return null;
+        }
+        try {
+            int gamePort = Integer.parseInt(parts[3]);
+            int gossipPort = Integer.parseInt(parts[4]);
+            long generation = Long.parseLong(parts[5]);
+            long heartbeat = Long.parseLong(parts[6]);
+            if (gamePort < 0 || gamePort > 65535 || gossipPort <= 0 || gossipPort > 65535 || generation < 0 || heartbeat < 0) {
+                return null;
+            }
+            return new Member(parts[1], parts[2], gamePort, gossipPort, generation, heartbeat);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Incorpora lo que otro miembro sabe de un tercero. Solo cuenta si el par (generación, latido) es más nuevo.
+     */
+    private synchronized void merge(Member seen) {
+        if (seen.id.equals(self.id)) {
+            return;
+        }
+        Member known = members.get(seen.id);
+        if (known == null) {
+            Tombstone tombstone = tombstones.get(seen.id);
+            if (tombstone == null || seen.isNewerThan(tombstone.generation, tombstone.heartbeat)) {
+                tombstones.remove(seen.id);
+                addMember(seen);
+            }
+        } else if (seen.generation > known.generation) {
+            removeMember(known); // Se reinició: puede volver con otra dirección o puertos
+            addMember(seen);
+        } else if (seen.isNewerThan(known.generation, known.heartbeat)) {
+            known.heartbeat = seen.heartbeat;
+            known.lastSeenNanos = System.nanoTime();
+        }
+    }
+
+    private synchronized void expireMembers() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(config.getFailureTimeoutMs());
+        for (Member member : members.values()) {
+            if (member != self && now - member.lastSeenNanos > timeout) {
+                removeMember(member);
+                tombstones.put(member.id, new Tombstone(member.generation, member.heartbeat, now + TOMBSTONE_TTL_FACTOR * timeout));
+                ServerMetrics.increment("cluster.members.failed");
+                System.out.println("Miembro caído: " + member.id);
+            }
+        }
+        tombstones.values().removeIf(tombstone -> now - tombstone.expiresAtNanos > 0);
+    }
+
+    private void removeMember(Member member) {
+        members.remove(member.id);
+        if (member.gamePort > 0) {
+            ring.remove(member.id);
+        }
+    }
+
+    private void addMember(Member member) {
+        members.put(member.id, member);
+        if (member.gamePort > 0) {
+            ring.add(member.id); // Las salas nuevas de este tramo pasan a ser de este nodo
+        }
+        if (member != self) {
+            System.out.println("Miembro nuevo: " + member.id + " (" + member.host + ":" + member.gamePort + ")");
+        }
+    }
+}
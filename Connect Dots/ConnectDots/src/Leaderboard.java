@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Tabla de posiciones del servidor: partidas, victorias y puntos de cada cliente. Las salas terminan en los
+ * hilos de sus clientes, así que la tabla se reparte en franjas con su propio bloqueo según el cliente; dos
+ * salas que terminan al mismo tiempo solo compiten si sus clientes caen en la misma franja. La consulta
+ * recorre las franjas de a una y ordena una copia, sin detener las escrituras de las demás.
+ *
+ * También da el rating con el que cada cliente vuelve a la cola de emparejamiento: parte de
+ * MatchmakingQueue.DEFAULT_RATING y sube RATING_STEP por victoria y baja lo mismo por cada partida sin ganar.
+ * No hay cuentas de jugador: la fila es de la conexión (un resume conserva la de la conexión original), así que
+ * el rating solo separa a los jugadores que siguen conectados entre partidas, como con rematch (activo por
+ * defecto). Una conexión nueva empieza otra vez con el rating inicial.
+ */
+public class Leaderboard {
+    private static final int STRIPES = 16; // Franjas (potencia de dos)
+    public static final int RATING_STEP = 25; // Rating que suma una victoria y resta una partida sin ganar
+
+    private final Stripe[] stripes = new Stripe[STRIPES]; // Una tabla por franja
+
+    /**
+     * Franja de la tabla: sus filas y el candado que las protege.
+     */
+    private static final class Stripe {
+        private final Map<Integer, Row> rows = new HashMap<>(); // Cliente -> fila
+    }
+
+    /**
+     * Fila de la tabla de posiciones.
+     */
+    public static final class Row {
+        private final int clientId;
+        private int games;
+        private int wins;
+        private int points;
+
+        Row(int clientId) {
+            this.clientId = clientId;
+        }
+
+        Row(Row other) {
+            this.clientId = other.clientId;
+            this.games = other.games;
+            this.wins = other.wins;
+            this.points = other.points;
+        }
+
+        public int getClientId() {
+            return clientId;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public int getRating() {
+            return MatchmakingQueue.DEFAULT_RATING + RATING_STEP * (wins - (games - wins));
+        }
+    }
+
+    public Leaderboard() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Registra el resultado de un cliente en una partida terminada.
+     *
+     * @param clientId Identificador del cliente.
+     * @param points   Cuadrados que cerró.
+     * @param won      Si ganó la partida (sin empate).
+     */
+    public void record(int clientId, int points, boolean won) {
+        Stripe stripe = stripeOf(clientId);
+        synchronized (stripe) {
+            Row row = stripe.rows.computeIfAbsent(clientId, Row::new);
+            row.games++;
+            row.points += points;
+            if (won) {
+                row.wins++;
+            }
+        }
+    }
+
+    /**
+     * Rating de un cliente según sus partidas terminadas.
+     *
+     * @param clientId Identificador del cliente.
+     * @return Rating para la cola de emparejamiento (el inicial si no jugó).
+     */
+    public int rating(int clientId) {
+        Stripe stripe = stripeOf(clientId);
+        synchronized (stripe) {
+            Row row = stripe.rows.get(clientId);
+            return row != null ? row.getRating() : MatchmakingQueue.DEFAULT_RATING;
+        }
+    }
+
+    /**
+     * Obtiene las primeras posiciones, ordenadas por victorias, luego por puntos y luego por cliente.
+     *
+     * @param limit Cantidad máxima de filas.
+     * @return Copia de las filas.
+     */
+    public List<Row> top(int limit) {
+        List<Row> rows = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Row row : stripe.rows.values()) {
+                    rows.add(new Row(row));
+                }
+            }
+        }
+        rows.sort((a, b) -> a.wins != b.wins ? b.wins - a.wins : a.points != b.points ? b.points - a.points : a.clientId - b.clientId);
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /**
+     * Formatea las primeras posiciones, una por línea.
+     *
+     * @param limit Cantidad máxima de filas.
+     * @return Texto con "puesto cliente partidas victorias puntos" por línea.
+     */
+    public String format(int limit) {
+        StringBuilder text = new StringBuilder();
+        int place = 1;
+        for (Row row : top(limit)) {
+            text.append(place++).append(' ').append(row.clientId).append(' ').append(row.games).append(' ').append(row.wins).append(' ').append(row.points).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Vacía la tabla (por ejemplo, al reiniciar el servidor, cuando los identificadores vuelven a empezar).
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.rows.clear();
+            }
+        }
+    }
+
+    private Stripe stripeOf(int clientId) {
+        int h = clientId * 0x9E3779B9; // Mezcla para que identificadores consecutivos no caigan juntos
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+}
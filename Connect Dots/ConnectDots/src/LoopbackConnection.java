@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Conexión en memoria entre dos extremos del mismo proceso. Cada sentido es un buffer circular acotado: escribir
+ * bloquea mientras el buffer está lleno y leer bloquea mientras está vacío, igual que un socket con su ventana.
+ * Cerrar cualquiera de los extremos cierra los dos sentidos; lo que ya estaba en el buffer todavía se puede leer
+ * y después la lectura devuelve fin de flujo.
+ *
+ * Permite correr el servidor y muchos clientes simulados en una sola JVM sin sockets (ver LoopbackSimulation).
+ */
+public class LoopbackConnection implements Connection {
+    public static final int DEFAULT_CAPACITY = 64 * 1024; // Bytes por sentido
+
+    private static final AtomicInteger nextId = new AtomicInteger(1); // Para nombrar los pares en los registros
+
+    private final Pipe incoming; // Lo que escribe el otro extremo
+    private final Pipe outgoing; // Lo que escribe este extremo
+    private final String name; // Descripción del otro extremo
+    private final InputStream in = new PipeInputStream();
+    private final OutputStream out = new PipeOutputStream();
+    private volatile boolean closed = false;
+
+    private LoopbackConnection(Pipe incoming, Pipe outgoing, String name) {
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+        this.name = name;
+    }
+
+    /**
+     * Crea un par de extremos conectados con buffers de DEFAULT_CAPACITY bytes.
+     *
+     * @return Arreglo con el extremo del cliente en la posición 0 y el del servidor en la 1.
+     */
+    public static LoopbackConnection[] pair() {
+        return pair(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Crea un par de extremos conectados.
+     *
+     * @param capacity Bytes que caben en cada sentido antes de bloquear al escritor.
+     * @return Arreglo con el extremo del cliente en la posición 0 y el del servidor en la 1.
+     */
+    public static LoopbackConnection[] pair(int capacity) {
+        Pipe toServer = new Pipe(capacity);
+        Pipe toClient = new Pipe(capacity);
+        int id = nextId.getAndIncrement();
+        return new LoopbackConnection[]{
+                new LoopbackConnection(toClient, toServer, "loopback-servidor-" + id),
+                new LoopbackConnection(toServer, toClient, "loopback-cliente-" + id)
+        };
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        incoming.close();
+        outgoing.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return name;
+    }
+
+    /**
+     * Buffer circular de un sentido. Los dos hilos se coordinan con el monitor del buffer.
+     */
+    private static final class Pipe {
+        private final byte[] buffer;
+        private int head = 0; // Próximo byte a leer
+        private int count = 0; // Bytes sin leer
+        private boolean closed = false;
+
+        Pipe(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        synchronized int read(byte[] dst, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (count == 0) {
+                if (closed) {
+                    return -1;
+                }
+                waitInterruptibly();
+            }
+            int n = Math.min(len, count);
+            int first = Math.min(n, buffer.length - head);
+            System.arraycopy(buffer, head, dst, off, first);
+            System.arraycopy(buffer, 0, dst, off + first, n - first);
+            head = (head + n) % buffer.length;
+            count -= n;
+            notifyAll(); // Hay espacio para el escritor
+            return n;
+        }
+
+        synchronized void write(byte[] src, int off, int len) throws IOException {
+            while (len > 0) {
+                if (closed) {
+                    throw new IOException("Conexión cerrada");
+                }
+                if (count == buffer.length) {
+                    waitInterruptibly();
+                    continue;
+                }
+                int tail = (head + count) % buffer.length;
+                int n = Math.min(len, Math.min(buffer.length - count, buffer.length - tail));
+                System.arraycopy(src, off, buffer, tail, n);
+                count += n;
+                off += n;
+                len -= n;
+                notifyAll(); // Hay datos para el lector
+            }
+        }
+
+        synchronized int available() {
+            return count;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        private void waitInterruptibly() throws IOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new java.io.InterruptedIOException();
+            }
+        }
+    }
+
+    private final class PipeInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return incoming.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return incoming.available();
+        }
+
+        @Override
+        public void close() {
+            LoopbackConnection.this.close();
+        }
+    }
+
+    private final class PipeOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outgoing.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            LoopbackConnection.this.close();
+        }
+    }
+}
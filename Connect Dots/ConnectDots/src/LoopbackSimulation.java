@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Corre el servidor y muchos clientes simulados (SimulatedClient) en una sola JVM, sin JavaFX ni puerto serial.
+ * Con el transporte loopback los clientes se conectan por pares en memoria (LoopbackConnection) y no se abre
+ * ningún socket; con tcp usan el puerto local y con unix un socket de dominio Unix temporal, para comparar.
+ * Verifica que todas las partidas terminen y que las puntuaciones cuadren, y mide partidas y jugadas por
+ * segundo. Termina con código 1 si algo falla.
+ *
+ * Todos los clientes los mueve el hilo principal, recorriéndolos en un orden sorteado con la semilla. Se conectan
+ * de a uno desde ese hilo, así que la cola de emparejamiento los recibe siempre en el mismo orden y arma las
+ * mismas salas; cada cliente elige sus líneas con su propia semilla y el turno solo avanza con jugadas, de modo
+ * que la misma semilla da los mismos resultados con cualquier transporte. La huella que se informa al final
+ * permite comparar dos corridas. Los hilos del servidor siguen siendo varios: lo que cambia entre corridas son
+ * los tiempos, no las partidas.
+ *
+ * Uso: java LoopbackSimulation [salas] [jugadores] [loopback|tcp|unix] [semilla]
+ */
+public class LoopbackSimulation {
+    private static final long TIMEOUT_MS = 120_000; // Tiempo máximo de la simulación
+    private static final int IDLE_PASSES = 4; // Pasadas sin mensajes en que solo se cede el procesador
+    private static final long IDLE_PARK_NANOS = 50_000; // Pausa cuando nadie recibe nada por más tiempo
+
+    /**
+     * @param args Salas (por defecto 500), jugadores por sala (2), transporte (loopback) y semilla (1).
+     * @throws Exception Si no se puede iniciar el servidor.
+     */
+    public static void main(String[] args) throws Exception {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        String transport = args.length > 2 ? args[2] : "loopback";
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        Properties properties = new Properties();
+        properties.setProperty("port", "0");
+        properties.setProperty("transport", transport);
+        properties.setProperty("socketPath", Files.createTempDirectory("connectdots").resolve("connectdots.sock").toString());
+        properties.setProperty("defaultPlayers", String.valueOf(players));
+        properties.setProperty("pairingIntervalMs", "5");
+        properties.setProperty("replayDir", "");
+        properties.setProperty("rematch", "false"); // Cada cliente juega una partida y se desconecta
+        properties.setProperty("turnTimeoutMs", "0"); // Un turno vencido por una pausa del equipo cambiaría la partida
+        properties.setProperty("connectionRatePerSec", "0");
+        properties.setProperty("roomRatePerSec", "0");
+        properties.setProperty("maxConnections", "0");
+        properties.setProperty("maxRooms", "0");
+        ServerConfig config = ServerConfig.fromProperties(properties);
+        GameServer server = new GameServer(config);
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // El servidor anuncia cada conexión y cada resultado
+        SimulatedClient[] clients = new SimulatedClient[rooms * players];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long elapsed;
+        try {
+            server.start();
+            long start = System.nanoTime();
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = new SimulatedClient(open(server, config), players, seeds.nextLong());
+            }
+            drive(clients, seeds.split(), System.currentTimeMillis() + TIMEOUT_MS);
+            elapsed = System.nanoTime() - start;
+        } finally {
+            server.stop();
+            System.setOut(console);
+            Files.deleteIfExists(Paths.get(config.getSocketPath()).getParent());
+        }
+
+        int finished = 0;
+        long boxes = 0;
+        long fingerprint = seed;
+        for (SimulatedClient client : clients) {
+            if (client.isFinished()) {
+                finished++;
+                boxes += client.getScore(client.getSeat());
+            }
+            fingerprint = (fingerprint * 31 + client.getSeat()) * 31 + client.getScore(Math.max(client.getSeat(), 0));
+        }
+        double seconds = elapsed / 1e9;
+        System.out.printf("Transporte %s: %d salas de %d jugadores en %.3f s%n", transport, rooms, players, seconds);
+        System.out.printf("  %.0f partidas/s, %.0f jugadas/s%n", rooms / seconds, rooms * GameRoom.EDGE_COUNT / seconds);
+        System.out.printf("  Huella de resultados (semilla %d): %016x%n", seed, fingerprint);
+        if (finished != clients.length || boxes != (long) rooms * GameRoom.BOX_COUNT) {
+            System.out.printf("FALLA: %d de %d clientes terminaron, %d de %d cuadrados%n", finished, clients.length, boxes, (long) rooms * GameRoom.BOX_COUNT);
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Mueve a todos los clientes desde este hilo hasta que terminen o venza el plazo. En cada pasada los recorre
+     * en un orden sorteado; si en varias pasadas seguidas nadie recibió nada, deja correr a los hilos del servidor.
+     */
+    private static void drive(SimulatedClient[] clients, SplittableRandom order, long deadline) {
+        int[] active = new int[clients.length]; // Clientes sin terminar
+        for (int i = 0; i < active.length; i++) {
+            active[i] = i;
+        }
+        int count = active.length;
+        int idle = 0;
+        BoardBatch boards = new BoardBatch(clients.length); // Tableros de los clientes a los que les toca jugar
+        while (count > 0 && System.currentTimeMillis() < deadline) {
+            for (int i = count - 1; i > 0; i--) {
+                int j = order.nextInt(i + 1);
+                int swap = active[i];
+                active[i] = active[j];
+                active[j] = swap;
+            }
+            boolean progressed = false;
+            for (int i = 0; i < count; ) {
+                SimulatedClient client = clients[active[i]];
+                try {
+                    progressed |= client.step();
+                } catch (IOException e) {
+                    client.close(); // Se informa como partida sin terminar
+                }
+                if (client.isDone()) {
+                    active[i] = active[--count];
+                } else {
+                    i++;
+                }
+            }
+            SimulatedClient.playDue(clients, boards);
+            if (progressed) {
+                idle = 0;
+            } else if (++idle < IDLE_PASSES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Abre la conexión de un cliente simulado con el transporte pedido. Las conexiones TCP y Unix son canales en
+     * modo no bloqueante para que el hilo que mueve a los clientes nunca espere a uno solo.
+     */
+    private static Connection open(GameServer server, ServerConfig config) throws IOException {
+        if ("loopback".equals(config.getTransport())) {
+            LoopbackConnection[] pair = LoopbackConnection.pair();
+            server.connect(pair[1]);
+            return pair[0];
+        }
+        ChannelConnection connection = "unix".equals(config.getTransport())
+                ? ChannelConnection.openUnix(Paths.get(config.getSocketPath()))
+                : ChannelConnection.openTcp("127.0.0.1", server.getLocalPort());
+        connection.setBlocking(false);
+        return connection;
+    }
+}
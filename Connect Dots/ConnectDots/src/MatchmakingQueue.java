@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Cola de emparejamiento por rating. Las conexiones que llegan solo se agregan a una bandeja de entrada;
+ * el emparejamiento se hace por lotes periódicos sobre conjuntos ordenados por rating, uno por cada
+ * cantidad de jugadores deseada (1 a 4). Así el costo por llegada es constante y cada lote recorre
+ * la cola una sola vez aunque haya decenas de miles de jugadores esperando.
+ *
+ * Un lote puede formar menos grupos de los posibles (por ejemplo, con el servidor lleno): los jugadores que no
+ * entran siguen en la cola con su hora de llegada original, así la banda de rating se les sigue ampliando. Los
+ * jugadores que ya no pueden sentarse (desconectados) se descartan durante el lote.
+ *
+ * @param <T> Tipo que identifica al jugador en espera (por ejemplo, su manejador de conexión).
+ */
+public class MatchmakingQueue<T> {
+    public static final int DEFAULT_RATING = 1500; // Rating de un jugador nuevo
+
+    private final int baseBand; // Diferencia de rating permitida al entrar a la cola
+    private final int bandGrowthPerSecond; // Cuánto se amplía la banda por cada segundo de espera
+    private final int maxBand; // Diferencia máxima permitida
+
+    private final ConcurrentLinkedQueue<Entry<T>> inbox = new ConcurrentLinkedQueue<>(); // Llegadas desde el último lote
+    private final Map<T, Entry<T>> waiting = new ConcurrentHashMap<>(); // Jugadores en espera
+    private final List<TreeSet<Entry<T>>> buckets = new ArrayList<>(); // Un conjunto ordenado por cantidad de jugadores
+    private final AtomicInteger nextSequence = new AtomicInteger(); // Desempate por orden de llegada
+
+    /**
+     * Crea una cola con bandas de rating por defecto.
+     */
+    public MatchmakingQueue() {
+        this(100, 50, 1000);
+    }
+
+    /**
+     * Crea una cola de emparejamiento.
+     *
+     * @param baseBand            Diferencia de rating permitida al entrar a la cola.
+     * @param bandGrowthPerSecond Ampliación de la banda por segundo de espera.
+     * @param maxBand             Diferencia máxima permitida.
+     */
+    public MatchmakingQueue(int baseBand, int bandGrowthPerSecond, int maxBand) {
+        this.baseBand = baseBand;
+        this.bandGrowthPerSecond = bandGrowthPerSecond;
+        this.maxBand = maxBand;
+        for (int i = 0; i <= GameRoom.MAX_PLAYERS; i++) {
+            buckets.add(new TreeSet<>());
+        }
+        ServerMetrics.registerGauge("matchmaking.waiting", waiting::size);
+    }
+
+    /**
+     * Agrega un jugador a la cola. No empareja: solo lo deja listo para el próximo lote.
+     *
+     * @param player         Jugador en espera.
+     * @param rating         Rating del jugador.
+     * @param desiredPlayers Cantidad de jugadores de la sala deseada (1 a 4).
+     */
+    public void enqueue(T player, int rating, int desiredPlayers) {
+        if (desiredPlayers < 1 || desiredPlayers > GameRoom.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Cantidad de jugadores inválida: " + desiredPlayers);
+        }
+        Entry<T> entry = new Entry<>(player, rating, desiredPlayers, System.nanoTime(), nextSequence.getAndIncrement());
+        if (waiting.putIfAbsent(player, entry) == null) {
+            inbox.add(entry);
+            ServerMetrics.increment("matchmaking.enqueued");
+        }
+    }
+
+    /**
+     * Saca a un jugador de la cola (por ejemplo, si se desconectó). El registro se descarta
+     * de forma perezosa en el siguiente lote.
+     *
+     * @param player Jugador a retirar.
+     * @return true si el jugador estaba esperando.
+     */
+    public boolean remove(T player) {
+        Entry<T> entry = waiting.remove(player);
+        if (entry != null) {
+            entry.cancelled = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cantidad de jugadores en espera.
+     *
+     * @return Jugadores en la cola.
+     */
+    public int size() {
+        return waiting.size();
+    }
+
+    /**
+     * Descarta a todos los jugadores en espera.
+     */
+    public synchronized void clear() {
+        inbox.clear();
+        waiting.clear();
+        for (TreeSet<Entry<T>> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * Ejecuta un lote de emparejamiento. Cada grupo devuelto tiene exactamente la cantidad de jugadores
+     * que pidieron sus integrantes y una diferencia de rating dentro de la banda del jugador que más espera.
+     *
+     * @return Grupos formados, en orden de rating.
+     */
+    public List<List<T>> pairBatch() {
+        return pairBatch(Integer.MAX_VALUE, player -> true);
+    }
+
+    /**
+     * Ejecuta un lote de emparejamiento limitado.
+     *
+     * @param maxGroups Grupos como máximo; el resto sigue esperando sin perder su tiempo de espera.
+     * @param eligible  Indica si un jugador todavía puede sentarse; los que no, salen de la cola.
+     * @return Grupos formados, en orden de rating.
+     */
+    public synchronized List<List<T>> pairBatch(int maxGroups, Predicate<? super T> eligible) {
+        long now = System.nanoTime();
+        Entry<T> arrived;
+        while ((arrived = inbox.poll()) != null) {
+            if (!arrived.cancelled) {
+                buckets.get(arrived.desiredPlayers).add(arrived);
+            }
+        }
+
+        List<List<T>> groups = new ArrayList<>();
+        for (int size = 1; size <= GameRoom.MAX_PLAYERS && groups.size() < maxGroups; size++) {
+            TreeSet<Entry<T>> bucket = buckets.get(size);
+            if (bucket.size() < size) {
+                continue;
+            }
+            // Ventana deslizante sobre el conjunto ordenado por rating
+            List<Entry<T>> window = new ArrayList<>(size);
+            Iterator<Entry<T>> it = bucket.iterator();
+            while (it.hasNext() && groups.size() < maxGroups) {
+                Entry<T> entry = it.next();
+                if (entry.cancelled) {
+                    it.remove();
+                    continue;
+                }
+                if (!eligible.test(entry.player)) {
+                    it.remove();
+                    waiting.remove(entry.player, entry);
+                    ServerMetrics.increment("matchmaking.dropped");
+                    continue;
+                }
+                window.add(entry);
+                if (window.size() < size) {
+                    continue;
+                }
+                if (fitsBand(window, now)) {
+                    List<T> group = new ArrayList<>(size);
+                    for (Entry<T> member : window) {
+                        bucket.remove(member);
+                        waiting.remove(member.player);
+                        group.add(member.player);
+                        ServerMetrics.add("matchmaking.wait.ms", (now - member.enqueuedAt) / 1_000_000);
+                    }
+                    groups.add(group);
+                    window.clear();
+                    // Se removieron elementos ya visitados; se reanuda después del último del grupo
+                    it = bucket.tailSet(entry, false).iterator();
+                } else {
+                    window.remove(0);
+                }
+            }
+        }
+        ServerMetrics.add("matchmaking.rooms.formed", groups.size());
+        return groups;
+    }
+
+    /**
+     * Verifica si la ventana cabe en la banda de rating. Se usa la banda más amplia de la ventana,
+     * de modo que un jugador que lleva mucho tiempo esperando acepta rivales más lejanos.
+     */
+    private boolean fitsBand(List<Entry<T>> window, long now) {
+        int spread = window.get(window.size() - 1).rating - window.get(0).rating;
+        long oldest = Long.MAX_VALUE;
+        for (Entry<T> entry : window) {
+            oldest = Math.min(oldest, entry.enqueuedAt);
+        }
+        long waitedSeconds = (now - oldest) / 1_000_000_000L;
+        long band = Math.min(maxBand, baseBand + waitedSeconds * bandGrowthPerSecond);
+        return spread <= band;
+    }
+
+    /**
+     * Registro de un jugador en espera, ordenado por rating y luego por orden de llegada.
+     */
+    private static final class Entry<T> implements Comparable<Entry<T>> {
+        private final T player;
+        private final int rating;
+        private final int desiredPlayers;
+        private final long enqueuedAt;
+        private final int sequence;
+        private volatile boolean cancelled;
+
+        Entry(T player, int rating, int desiredPlayers, long enqueuedAt, int sequence) {
+            this.player = player;
+            this.rating = rating;
+            this.desiredPlayers = desiredPlayers;
+            this.enqueuedAt = enqueuedAt;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry<T> other) {
+            int byRating = Integer.compare(rating, other.rating);
+            return byRating != 0 ? byRating : Integer.compare(sequence, other.sequence);
+        }
+    }
+}
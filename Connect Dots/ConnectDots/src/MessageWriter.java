@@ -0,0 +1,71 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Escritor de mensajes de una conexión. Reemplaza al PrintWriter para poder enviar bytes ya codificados
+ * (los buffers de MoveCodec) sin convertirlos en String. Igual que PrintWriter, no lanza excepciones:
+ * un error de escritura se recuerda y se consulta con checkError.
+ */
+public class MessageWriter {
+    private static final int BUFFER_SIZE = 1024; // Bytes acumulados antes de escribir en el socket
+
+    private final OutputStream out; // Flujo con buffer hacia el cliente
+    private boolean error = false; // Indica si falló alguna escritura
+
+    /**
+     * @param out Flujo de salida de la conexión.
+     */
+    public MessageWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Envía un mensaje seguido de un salto de línea.
+     *
+     * @param message Bytes del mensaje.
+     * @param offset  Inicio del mensaje.
+     * @param length  Cantidad de bytes.
+     */
+    public synchronized void send(byte[] message, int offset, int length) {
+        if (error) {
+            return;
+        }
+        try {
+            out.write(message, offset, length);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+
+    /**
+     * Envía un mensaje seguido de un salto de línea.
+     *
+     * @param message Bytes del mensaje.
+     */
+    public void send(byte[] message) {
+        send(message, 0, message.length);
+    }
+
+    /**
+     * Envía un mensaje de texto seguido de un salto de línea.
+     *
+     * @param message Mensaje a enviar.
+     */
+    public void send(String message) {
+        send(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Indica si alguna escritura falló (por ejemplo, porque el cliente ya no existe).
+     *
+     * @return true si hubo un error.
+     */
+    public synchronized boolean checkError() {
+        return error;
+    }
+}
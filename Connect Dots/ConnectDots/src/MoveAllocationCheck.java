@@ -0,0 +1,237 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Verifica que el camino de una jugada válida no cree objetos una vez en régimen. Mide el camino del servidor, no
+ * una copia: dos conexiones en memoria (LoopbackConnection) se registran en un GameServer con transporte loopback
+ * y el emparejamiento las sienta en una sala real; este hilo les entrega las líneas con
+ * ClientHandler.handleLine, el mismo método que llama el hilo de cada cliente. Así se miden la tasa de la conexión,
+ * MoveCodec, el bloqueo y la tasa de la sala, la ranura de RoomStore, recordMove, la métrica, el reloj de turno y
+ * el envío a los dos jugadores por MessageWriter.
+ *
+ * Se miden todas las jugadas salvo la última de cada partida, que además publica resultados, actualiza la tabla de
+ * posiciones y devuelve a los jugadores a la cola (rematch): eso pasa una vez por partida, no por jugada. Entre
+ * partidas se espera a que el emparejamiento vuelva a sentar a los dos.
+ *
+ * Termina con código 1 si se miden bytes asignados por jugada o si el servidor rechaza alguna jugada.
+ *
+ * Uso: java MoveAllocationCheck [jugadas medidas]
+ */
+public class MoveAllocationCheck {
+    private static final int GAMES = 1000; // Partidas distintas en el guion de jugadas
+    private static final int WARMUP_MOVES = 200_000; // Jugadas para que el JIT compile el camino
+    private static final long SEAT_TIMEOUT_MS = 10_000; // Espera máxima para que el emparejamiento siente a los dos
+
+    /**
+     * @param args Cantidad de jugadas a medir (por defecto 200.000).
+     * @throws Exception Si no se puede iniciar el servidor.
+     */
+    public static void main(String[] args) throws Exception {
+        int measured = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("La JVM no mide la memoria asignada por hilo");
+            System.exit(2);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("transport", "loopback");
+        properties.setProperty("defaultPlayers", "2");
+        properties.setProperty("pairingIntervalMs", "1");
+        properties.setProperty("rematch", "true"); // Al terminar, los dos vuelven a la cola y se sientan en otra sala
+        properties.setProperty("replayDir", "");
+        properties.setProperty("captureDir", "");
+        // Límites de tasa altos: se consultan en cada jugada, pero solo se mide su costo
+        properties.setProperty("connectionRatePerSec", "1e12");
+        properties.setProperty("connectionBurst", "1000000");
+        properties.setProperty("roomRatePerSec", "1e12");
+        properties.setProperty("roomBurst", "1000000");
+        GameServer server = new GameServer(ServerConfig.fromProperties(properties));
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // El servidor anuncia cada conexión y cada resultado
+        Path path;
+        long moves, allocated, applied;
+        try {
+            server.start();
+            GameServer.ClientHandler[] handlers = new GameServer.ClientHandler[2];
+            AtomicLong received = new AtomicLong();
+            for (int i = 0; i < handlers.length; i++) {
+                LoopbackConnection[] pair = LoopbackConnection.pair();
+                handlers[i] = server.attach(pair[1]);
+                drain(pair[0].getInputStream(), received, "receptor-" + i);
+            }
+            path = new Path(new Random(42), handlers, threads);
+            path.run(WARMUP_MOVES);
+            long appliedBefore = ServerMetrics.get("server.moves");
+            path.allocated = 0;
+            moves = path.run(measured);
+            allocated = path.allocated;
+            applied = ServerMetrics.get("server.moves") - appliedBefore;
+            path.bytesReceived = received.get();
+        } finally {
+            server.stop();
+            System.setOut(console);
+        }
+
+        double perMove = (double) allocated / moves;
+        System.out.printf("Jugadas medidas: %d (%d aplicadas por el servidor)%nBytes asignados: %d (%.4f por jugada)%nBytes recibidos por los clientes: %d%n",
+                moves, applied, allocated, perMove, path.bytesReceived);
+        if (applied < moves) {
+            System.err.println("El servidor rechazó jugadas del guion");
+            System.exit(1);
+        }
+        if (allocated > 0) {
+            System.err.println("El camino de las jugadas asigna memoria");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Lee y descarta lo que el servidor envía a un cliente, para que su buffer en memoria nunca se llene.
+     */
+    private static void drain(InputStream in, AtomicLong received, String name) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try {
+                int read;
+                while ((read = in.read(buffer, 0, buffer.length)) >= 0) {
+                    received.addAndGet(read);
+                }
+            } catch (IOException e) {
+                // Se cerró la conexión al detener el servidor
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Estado del camino medido. El guion se arma antes de medir: cada partida completa tal como la envía el
+     * cliente con Gson, separada por asiento, con el asiento que juega cada jugada (el que cierra un cuadrado
+     * repite) y el asiento que gana. Las partidas se eligen para que los dos clientes ganen por turnos: si uno
+     * ganara siempre, sus ratings se separarían y el emparejamiento tardaría cada vez más en volver a juntarlos.
+     */
+    private static final class Path {
+        private final GameServer.ClientHandler[] handlers;
+        private final com.sun.management.ThreadMXBean threads;
+        private final ByteArrayInputStream[][] inputs = new ByteArrayInputStream[GAMES][2]; // Líneas de cada asiento
+        private final BoundedLineReader[][] readers = new BoundedLineReader[GAMES][2];
+        private final byte[][] seats = new byte[GAMES][GameRoom.EDGE_COUNT]; // Asiento de cada jugada
+        private final int[][] gamesWonBy = new int[2][]; // Partidas del guion que gana cada asiento
+        private final int[] nextGame = new int[2]; // Próxima partida de cada lista
+        private final int[] wins = new int[2]; // Partidas ganadas por cada cliente
+        private long allocated = 0; // Bytes asignados en las jugadas medidas
+        private long bytesReceived = 0; // Bytes que el servidor envió a los clientes
+
+        Path(Random random, GameServer.ClientHandler[] handlers, com.sun.management.ThreadMXBean threads) throws IOException {
+            this.handlers = handlers;
+            this.threads = threads;
+            int[][] winners = {new int[GAMES], new int[GAMES]};
+            int[] winnerCount = new int[2];
+            for (int g = 0; g < GAMES; g++) {
+                ByteArrayOutputStream[] scripts = {new ByteArrayOutputStream(), new ByteArrayOutputStream()};
+                GameRoom room = new GameRoom(g, 2);
+                int[] order = shuffledEdges(random);
+                for (int i = 0; i < order.length; i++) {
+                    int edge = order[i];
+                    int seat = room.getCurrentPlayer();
+                    room.applyMove(seat, edge);
+                    seats[g][i] = (byte) seat;
+                    String json = GameDataCodec.encode(GameData.createLineData(GameRoom.edgeStartX(edge), GameRoom.edgeStartY(edge),
+                            GameRoom.edgeEndX(edge), GameRoom.edgeEndY(edge), "clientColor"));
+                    scripts[seat].write(json.getBytes(StandardCharsets.UTF_8));
+                    scripts[seat].write('\n');
+                }
+                int winner = room.getWinner();
+                winners[winner][winnerCount[winner]++] = g;
+                for (int seat = 0; seat < 2; seat++) {
+                    inputs[g][seat] = new ByteArrayInputStream(scripts[seat].toByteArray());
+                    readers[g][seat] = new BoundedLineReader(inputs[g][seat], 4096);
+                }
+            }
+            for (int seat = 0; seat < 2; seat++) {
+                gamesWonBy[seat] = Arrays.copyOf(winners[seat], winnerCount[seat]);
+            }
+        }
+
+        /**
+         * Juega partidas completas hasta cubrir la cantidad pedida de jugadas medidas.
+         *
+         * @return Jugadas medidas.
+         */
+        long run(int count) throws IOException, InterruptedException {
+            long played = 0;
+            while (played < count) {
+                awaitSeats();
+                GameServer.ClientHandler[] bySeat = handlers[0].getSeat() == 0 ? handlers : new GameServer.ClientHandler[]{handlers[1], handlers[0]};
+                int loser = wins[0] <= wins[1] ? 0 : 1; // Cliente que gana esta vez
+                int winnerSeat = handlers[loser].getSeat();
+                int game = gamesWonBy[winnerSeat][nextGame[winnerSeat]];
+                nextGame[winnerSeat] = (nextGame[winnerSeat] + 1) % gamesWonBy[winnerSeat].length;
+                for (int seat = 0; seat < 2; seat++) {
+                    inputs[game][seat].reset(); // La partida puede repetirse en otra vuelta del guion
+                }
+                long before = threads.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < GameRoom.EDGE_COUNT - 1; i++) {
+                    play(bySeat, game, i);
+                }
+                allocated += threads.getCurrentThreadAllocatedBytes() - before;
+                played += GameRoom.EDGE_COUNT - 1;
+                long finished = ServerMetrics.get("server.games.finished");
+                play(bySeat, game, GameRoom.EDGE_COUNT - 1); // Cierra la partida: no se mide
+                // El emparejamiento puede sentarlos en otra sala enseguida, así que se cuenta la partida terminada
+                if (ServerMetrics.get("server.games.finished") != finished + 1) {
+                    throw new IllegalStateException("La partida no terminó: el servidor rechazó jugadas del guion");
+                }
+                wins[loser]++;
+            }
+            return played;
+        }
+
+        private void play(GameServer.ClientHandler[] bySeat, int game, int move) throws IOException {
+            int seat = seats[game][move];
+            BoundedLineReader reader = readers[game][seat];
+            bySeat[seat].handleLine(reader, reader.readLineBytes());
+        }
+
+        /**
+         * Espera a que el emparejamiento siente a los dos clientes en una sala nueva.
+         */
+        private void awaitSeats() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SEAT_TIMEOUT_MS);
+            while (!handlers[0].isPlaying() || !handlers[1].isPlaying()) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("El emparejamiento no sentó a los clientes");
+                }
+                Thread.sleep(0, 100_000);
+            }
+        }
+    }
+
+    private static int[] shuffledEdges(Random random) {
+        int[] order = new int[GameRoom.EDGE_COUNT];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+}
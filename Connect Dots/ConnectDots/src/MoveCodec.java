@@ -0,0 +1,238 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Camino rápido de las jugadas sin crear objetos. Una jugada viaja por el servidor como un índice de arista y
+ * un asiento; solo en el borde del protocolo se traduce a JSON:
+ * <ul>
+ *     <li>parseLine lee un mensaje line directamente de los bytes recibidos y devuelve su arista.</li>
+ *     <li>encodeLine escribe el mensaje line de salida en un buffer reutilizable de la sala.</li>
+ *     <li>scoreMessage devuelve mensajes de puntuación precalculados (pesos mosca), uno por asiento y puntaje.</li>
+ * </ul>
+ * Los bytes que produce son los mismos que GameDataCodec (y Gson) generan para el mismo GameData.
+ */
+public final class MoveCodec {
+    public static final int NOT_A_MOVE = Integer.MIN_VALUE; // El mensaje no es una línea simple: usar GameDataCodec
+    public static final int MAX_MESSAGE_BYTES = 256; // Tamaño suficiente para cualquier mensaje line de salida
+
+    private static final byte[] TYPE = ascii("type");
+    private static final byte[] LINE = ascii("line");
+    private static final byte[] START_X = ascii("startX");
+    private static final byte[] START_Y = ascii("startY");
+    private static final byte[] END_X = ascii("endX");
+    private static final byte[] END_Y = ascii("endY");
+
+    private static final byte[][][] LINE_PREFIXES = new byte[GameRoom.EDGE_COUNT][GameRoom.MAX_PLAYERS][]; // Mensaje line hasta "sequence":
+    private static final byte[] LINE_SUFFIX = ascii("}");
+    private static final byte[][][] SCORE_MESSAGES = new byte[GameRoom.MAX_PLAYERS][GameRoom.BOX_COUNT + 1][]; // Mensajes score completos
+
+    static {
+        // Se generan con GameDataCodec para que el formato no pueda divergir
+        for (int edge = 0; edge < GameRoom.EDGE_COUNT; edge++) {
+            for (int seat = 0; seat < GameRoom.MAX_PLAYERS; seat++) {
+                String json = GameDataCodec.encode(GameData.createLineData(GameRoom.edgeStartX(edge), GameRoom.edgeStartY(edge),
+                        GameRoom.edgeEndX(edge), GameRoom.edgeEndY(edge), GameRoom.SEAT_COLORS[seat]));
+                LINE_PREFIXES[edge][seat] = ascii(json.substring(0, json.length() - "0}".length()));
+            }
+        }
+        for (int seat = 0; seat < GameRoom.MAX_PLAYERS; seat++) {
+            for (int score = 0; score <= GameRoom.BOX_COUNT; score++) {
+                SCORE_MESSAGES[seat][score] = ascii(GameDataCodec.encode(GameData.createScoreData(GameRoom.SEAT_COLORS[seat], score)));
+            }
+        }
+    }
+
+    private MoveCodec() {
+    }
+
+    /**
+     * Lee un mensaje line sin crear objetos. Solo acepta objetos JSON planos; cualquier otra cosa (otro tipo,
+     * cadenas con escapes, objetos anidados) devuelve NOT_A_MOVE para que se decodifique por el camino normal.
+     *
+     * @param buf    Bytes del mensaje.
+     * @param length Cantidad de bytes válidos.
+     * @return Índice de la arista, -1 si las coordenadas no forman una línea válida, o NOT_A_MOVE.
+     */
+    public static int parseLine(byte[] buf, int length) {
+        int pos = skipSpaces(buf, 0, length);
+        if (pos >= length || buf[pos] != '{') {
+            return NOT_A_MOVE;
+        }
+        boolean isLine = false;
+        int startX = 0, startY = 0, endX = 0, endY = 0;
+        pos++;
+        while (true) {
+            pos = skipSpaces(buf, pos, length);
+            if (pos < length && buf[pos] == '}') {
+                break;
+            }
+            // Clave
+            if (pos >= length || buf[pos] != '"') {
+                return NOT_A_MOVE;
+            }
+            int keyStart = ++pos;
+            while (pos < length && buf[pos] != '"') {
+                if (buf[pos] == '\\') {
+                    return NOT_A_MOVE;
+                }
+                pos++;
+            }
+            if (pos >= length) {
+                return NOT_A_MOVE;
+            }
+            int keyEnd = pos++;
+            pos = skipSpaces(buf, pos, length);
+            if (pos >= length || buf[pos] != ':') {
+                return NOT_A_MOVE;
+            }
+            pos = skipSpaces(buf, pos + 1, length);
+            if (pos >= length) {
+                return NOT_A_MOVE;
+            }
+
+            // Valor
+            if (buf[pos] == '"') {
+                int valueStart = ++pos;
+                while (pos < length && buf[pos] != '"') {
+                    if (buf[pos] == '\\') {
+                        return NOT_A_MOVE;
+                    }
+                    pos++;
+                }
+                if (pos >= length) {
+                    return NOT_A_MOVE;
+                }
+                if (equals(buf, keyStart, keyEnd, TYPE)) {
+                    if (!equals(buf, valueStart, pos, LINE)) {
+                        return NOT_A_MOVE;
+                    }
+                    isLine = true;
+                }
+                pos++;
+            } else if (buf[pos] == '-' || (buf[pos] >= '0' && buf[pos] <= '9')) {
+                boolean negative = buf[pos] == '-';
+                if (negative) {
+                    pos++;
+                }
+                int value = 0;
+                int digits = 0;
+                while (pos < length && buf[pos] >= '0' && buf[pos] <= '9') {
+                    if (++digits > 9) {
+                        return NOT_A_MOVE; // No cabe en un int sin revisar desbordes
+                    }
+                    value = value * 10 + (buf[pos++] - '0');
+                }
+                if (digits == 0 || (pos < length && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E'))) {
+                    return NOT_A_MOVE;
+                }
+                if (negative) {
+                    value = -value;
+                }
+                if (equals(buf, keyStart, keyEnd, START_X)) {
+                    startX = value;
+                } else if (equals(buf, keyStart, keyEnd, START_Y)) {
+                    startY = value;
+                } else if (equals(buf, keyStart, keyEnd, END_X)) {
+                    endX = value;
+                } else if (equals(buf, keyStart, keyEnd, END_Y)) {
+                    endY = value;
+                }
+            } else if (matches(buf, pos, length, "null") || matches(buf, pos, length, "true")) {
+                pos += 4;
+            } else if (matches(buf, pos, length, "false")) {
+                pos += 5;
+            } else {
+                return NOT_A_MOVE;
+            }
+
+            pos = skipSpaces(buf, pos, length);
+            if (pos < length && buf[pos] == ',') {
+                pos++;
+            } else if (pos < length && buf[pos] == '}') {
+                break;
+            } else {
+                return NOT_A_MOVE;
+            }
+        }
+        return isLine ? GameRoom.edgeIndex(startX, startY, endX, endY) : NOT_A_MOVE;
+    }
+
+    /**
+     * Escribe el mensaje line de una jugada.
+     *
+     * @param dst      Buffer de destino (al menos MAX_MESSAGE_BYTES).
+     * @param edge     Línea dibujada.
+     * @param seat     Asiento que la dibujó.
+     * @param sequence Número de la jugada.
+     * @return Cantidad de bytes escritos.
+     */
+    public static int encodeLine(byte[] dst, int edge, int seat, int sequence) {
+        byte[] prefix = LINE_PREFIXES[edge][seat];
+        System.arraycopy(prefix, 0, dst, 0, prefix.length);
+        int pos = writeInt(dst, prefix.length, sequence);
+        System.arraycopy(LINE_SUFFIX, 0, dst, pos, LINE_SUFFIX.length);
+        return pos + LINE_SUFFIX.length;
+    }
+
+    /**
+     * Mensaje score precalculado. No se debe modificar.
+     *
+     * @param seat  Asiento.
+     * @param score Puntuación (0 a 9).
+     * @return Bytes del mensaje.
+     */
+    public static byte[] scoreMessage(int seat, int score) {
+        return SCORE_MESSAGES[seat][score];
+    }
+
+    private static int writeInt(byte[] dst, int pos, int value) {
+        if (value == 0) {
+            dst[pos] = '0';
+            return pos + 1;
+        }
+        int digits = 0;
+        for (int v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            dst[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private static int skipSpaces(byte[] buf, int pos, int length) {
+        while (pos < length && (buf[pos] == ' ' || buf[pos] == '\t' || buf[pos] == '\r' || buf[pos] == '\n')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean equals(byte[] buf, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buf[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(byte[] buf, int pos, int length, String literal) {
+        if (pos + literal.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buf[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
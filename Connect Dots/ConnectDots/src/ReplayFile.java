@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Formato compacto de repeticiones de partidas. Cada partida ocupa un encabezado de 20 bytes
+ * (firma, versión, jugadores, cantidad de jugadas, colores y hora de inicio) seguido de un entero
+ * por jugada con la línea, el jugador y los milisegundos transcurridos desde el inicio.
+ * Un archivo puede contener varias partidas seguidas y se lee mapeado en memoria, sin crear GameData.
+ */
+public final class ReplayFile {
+    public static final int MAGIC = 0x43445250; // "CDRP"
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 20;
+    public static final int MOVE_BYTES = 4;
+    public static final String EXTENSION = ".cdr";
+
+    private static final int EDGE_BITS = 5; // 24 líneas caben en 5 bits
+    private static final int PLAYER_BITS = 2; // 4 jugadores caben en 2 bits
+    private static final int TIME_SHIFT = EDGE_BITS + PLAYER_BITS;
+    private static final long MAX_ELAPSED_MS = (1L << (32 - TIME_SHIFT)) - 1; // Unas 9 horas
+
+    private ReplayFile() {
+    }
+
+    /**
+     * Empaqueta una jugada en un entero.
+     *
+     * @param edge          Índice de la línea.
+     * @param player        Asiento del jugador.
+     * @param elapsedMillis Milisegundos desde el inicio de la partida.
+     * @return Jugada empaquetada.
+     */
+    public static int packMove(int edge, int player, long elapsedMillis) {
+        long elapsed = Math.min(Math.max(elapsedMillis, 0), MAX_ELAPSED_MS);
+        return (int) (elapsed << TIME_SHIFT) | (player << EDGE_BITS) | edge;
+    }
+
+    public static int moveEdge(int packed) {
+        return packed & ((1 << EDGE_BITS) - 1);
+    }
+
+    public static int movePlayer(int packed) {
+        return (packed >>> EDGE_BITS) & ((1 << PLAYER_BITS) - 1);
+    }
+
+    public static long moveElapsedMillis(int packed) {
+        return packed >>> TIME_SHIFT;
+    }
+
+    /**
+     * Escribe una partida terminada en un archivo nuevo.
+     *
+     * @param file        Archivo de destino.
+     * @param seatColors  Color de cada asiento, uno de GameRoom.SEAT_COLORS.
+     * @param startMillis Hora de inicio de la partida.
+     * @param moves       Jugadas empaquetadas.
+     * @param moveCount   Cantidad de jugadas válidas en el arreglo.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public static void write(Path file, String[] seatColors, long startMillis, int[] moves, int moveCount) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + moveCount * MOVE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        encode(buffer, seatColors, startMillis, moves, moveCount);
+        buffer.flip();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Codifica una partida al final de un buffer.
+     */
+    static void encode(ByteBuffer buffer, String[] seatColors, long startMillis, int[] moves, int moveCount) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) seatColors.length);
+        buffer.put((byte) moveCount);
+        buffer.put((byte) 0); // Reservado
+        for (int seat = 0; seat < GameRoom.MAX_PLAYERS; seat++) {
+            buffer.put(seat < seatColors.length ? (byte) colorIndex(seatColors[seat]) : (byte) -1);
+        }
+        buffer.putLong(startMillis);
+        for (int i = 0; i < moveCount; i++) {
+            buffer.putInt(moves[i]);
+        }
+    }
+
+    /**
+     * Mapea un archivo de repeticiones en memoria de solo lectura.
+     *
+     * @param file Archivo a mapear.
+     * @return Buffer mapeado listo para leer con un Reader.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    /**
+     * Revisa el encabezado de una partida: firma, versión, jugadores, cantidad de jugadas y colores, y que las
+     * jugadas quepan en el buffer.
+     *
+     * @param buffer Buffer con partidas (little endian).
+     * @param offset Posición del encabezado.
+     * @return true si la partida se puede leer.
+     */
+    public static boolean isValidGame(ByteBuffer buffer, int offset) {
+        if (offset + HEADER_BYTES > buffer.limit() || buffer.getInt(offset) != MAGIC || buffer.get(offset + 4) != VERSION) {
+            return false;
+        }
+        int players = buffer.get(offset + 5);
+        int moveCount = buffer.get(offset + 6) & 0xFF;
+        if (players < 1 || players > GameRoom.MAX_PLAYERS || moveCount > GameRoom.EDGE_COUNT
+                || offset + HEADER_BYTES + moveCount * MOVE_BYTES > buffer.limit()) {
+            return false;
+        }
+        for (int seat = 0; seat < players; seat++) {
+            int color = buffer.get(offset + 8 + seat);
+            if (color < 0 || color >= GameRoom.SEAT_COLORS.length) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int colorIndex(String color) {
+        for (int i = 0; i < GameRoom.SEAT_COLORS.length; i++) {
+            if (GameRoom.SEAT_COLORS[i].equals(color)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recorre las partidas de un buffer sin crear objetos por jugada. Se reutiliza llamando a nextGame().
+     */
+    public static final class Reader {
+        private final ByteBuffer buffer; // Buffer con una o más partidas
+        private int gameOffset = -1; // Posición del encabezado de la partida actual
+        private int nextOffset = 0; // Posición de la siguiente partida
+
+        public Reader(ByteBuffer buffer) {
+            this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Avanza a la siguiente partida.
+         *
+         * @return true si hay otra partida válida.
+         * @throws IllegalStateException Si el archivo está dañado.
+         */
+        public boolean nextGame() {
+            if (nextOffset + HEADER_BYTES > buffer.limit()) {
+                return false;
+            }
+            if (!isValidGame(buffer, nextOffset)) {
+                throw new IllegalStateException("Repetición inválida o incompleta en la posición " + nextOffset);
+            }
+            gameOffset = nextOffset;
+            nextOffset = gameOffset + HEADER_BYTES + moveCount() * MOVE_BYTES;
+            return true;
+        }
+
+        public int playerCount() {
+            return buffer.get(gameOffset + 5);
+        }
+
+        public int moveCount() {
+            return buffer.get(gameOffset + 6) & 0xFF;
+        }
+
+        /**
+         * Color del asiento indicado.
+         *
+         * @param seat Asiento del jugador.
+         * @return Nombre del color.
+         */
+        public String color(int seat) {
+            return GameRoom.SEAT_COLORS[colorIndex(seat)];
+        }
+
+        /**
+         * Posición en GameRoom.SEAT_COLORS del color del asiento indicado.
+         *
+         * @param seat Asiento del jugador.
+         * @return Índice del color.
+         */
+        public int colorIndex(int seat) {
+            return buffer.get(gameOffset + 8 + seat);
+        }
+
+        public long startMillis() {
+            return buffer.getLong(gameOffset + 12);
+        }
+
+        /**
+         * Jugada empaquetada número i de la partida actual.
+         *
+         * @param i Número de jugada.
+         * @return Jugada empaquetada (ver packMove).
+         */
+        public int move(int i) {
+            return buffer.getInt(gameOffset + HEADER_BYTES + i * MOVE_BYTES);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Almacén fuera del heap para el estado de muchas salas. Cada sala ocupa una ranura de tamaño fijo en memoria
+ * directa y se identifica por su número de ranura, así que una partida en curso no aporta objetos al heap y
+ * el recolector no tiene nada que recorrer sin importar cuántas haya. Las reglas son las mismas de GameRoom.
+ *
+ * La memoria se reserva en bloques de BLOCK_SLOTS ranuras a medida que hace falta. Las ranuras libres forman
+ * listas enlazadas guardadas en las propias ranuras, por lo que liberar y reutilizar cuesta O(1). Hay una
+ * lista por franja (STRIPES, potencia de dos según los núcleos) con su propio bloqueo: cada hilo reserva en la
+ * franja que le toca y cada ranura vuelve a la franja dueña de su bloque, así que crear y terminar partidas
+ * desde muchos hilos no compite por un único monitor. Una franja vacía toma ranuras de las demás antes de
+ * pedir un bloque nuevo.
+ *
+ * Distribución de una ranura (SLOT_BYTES bytes):
+ * <pre>
+ *   0  int    líneas dibujadas (máscara de bits) o siguiente ranura libre
+ *   4  int    secuencia (jugadas aplicadas)
+ *   8  byte   jugadores (0 si la ranura está libre)
+ *   9  byte   jugador con el turno
+ *  10  byte   puntuación de cada jugador (4)
+ *  14  byte   dueño de cada cuadrado, -1 si no tiene (9)
+ *  23  byte   asientos cuya reserva venció
+ *  24  long   inicio del turno actual (System.nanoTime)
+ *  32  int    jugadas empaquetadas con ReplayFile.packMove (24)
+ * 128  double fichas de la cubeta de jugadas de la sala (infinito: llena)
+ * 136  long   último relleno de la cubeta
+ * </pre>
+ *
+ * Los bloques son ByteBuffer directos y no segmentos de la API de memoria externa: en JDK 17 esa API es el
+ * módulo incubador jdk.incubator.foreign, que cambió de forma incompatible en cada versión siguiente, y el
+ * almacén está en el camino de todas las partidas, así que no tiene un camino alternativo como el de
+ * BoardBatch. Con ella el servidor no arrancaría sin --add-modules ni compilaría en un JDK más nuevo.
+ *
+ * Crear y liberar ranuras es seguro entre hilos; las jugadas sobre una misma ranura se deben sincronizar
+ * afuera, igual que con GameRoom.
+ */
+public class RoomStore {
+    public static final int SLOT_BYTES = 144; // Bytes por sala
+    public static final int BLOCK_SLOTS = 4096; // Ranuras por bloque de memoria (576 KB)
+
+    private static final int EDGES = 0;
+    private static final int SEQUENCE = 4;
+    private static final int PLAYERS = 8;
+    private static final int CURRENT = 9;
+    private static final int SCORES = 10;
+    private static final int OWNERS = 14;
+    private static final int EXPIRED = 23;
+    private static final int TURN_STARTED = 24;
+    private static final int MOVES = 32;
+    private static final int LIMITER = 128;
+
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SLOTS);
+    private static final int STRIPES = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1)); // Listas libres independientes
+    private static final int[][] EDGE_BOXES = new int[GameRoom.EDGE_COUNT][]; // Cuadrados que toca cada línea
+
+    static {
+        for (int edge = 0; edge < GameRoom.EDGE_COUNT; edge++) {
+            int[] boxes = new int[2];
+            int count = 0;
+            for (int box = 0; box < GameRoom.BOX_COUNT; box++) {
+                if ((GameRoom.boxMask(box) & (1 << edge)) != 0) {
+                    boxes[count++] = box;
+                }
+            }
+            EDGE_BOXES[edge] = java.util.Arrays.copyOf(boxes, count);
+        }
+    }
+
+    private final List<ByteBuffer> blocks = new ArrayList<>(); // Bloques de memoria directa (se modifica con su bloqueo)
+    private volatile ByteBuffer[] blockArray = new ByteBuffer[0]; // Copia de blocks para leer sin bloquear
+    private volatile Stripe[] blockOwners = new Stripe[0]; // Franja a la que vuelven las ranuras de cada bloque
+    private final Stripe[] stripes = new Stripe[STRIPES]; // Listas libres
+
+    /**
+     * Lista libre de una franja. Se modifica sincronizando sobre la franja.
+     */
+    private static final class Stripe {
+        private volatile int freeHead = -1; // Primera ranura libre (-1 si no hay); se lee sin bloqueo solo como pista
+        private volatile int used = 0; // Ranuras ocupadas que pertenecen a esta franja
+    }
+
+    public RoomStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        ServerMetrics.registerGauge("rooms.offheap.used", this::size);
+        ServerMetrics.registerGauge("rooms.offheap.bytes", () -> (long) blockArray.length * BLOCK_SLOTS * SLOT_BYTES);
+    }
+
+    /**
+     * Reserva una ranura con un tablero vacío.
+     *
+     * @param playerCount Cantidad de jugadores (1 a 4).
+     * @return Número de ranura.
+     */
+    public int allocate(int playerCount) {
+        if (playerCount < 1 || playerCount > GameRoom.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Cantidad de jugadores inválida: " + playerCount);
+        }
+        int home = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        int slot;
+        while ((slot = take(stripes[home])) < 0 && (slot = steal(home)) < 0) {
+            grow(stripes[home]);
+        }
+        // La ranura ya salió de la lista: nadie más la toca hasta que se publique la sala
+        clear(block(slot), offset(slot), playerCount);
+        return slot;
+    }
+
+    /**
+     * Devuelve una ranura a la lista libre. Quien la liberó no debe volver a usarla.
+     *
+     * @param slot Número de ranura.
+     */
+    public void free(int slot) {
+        ByteBuffer block = block(slot);
+        int base = offset(slot);
+        Stripe owner = blockOwners[slot >>> BLOCK_SHIFT];
+        synchronized (owner) {
+            if (block.get(base + PLAYERS) == 0) {
+                throw new IllegalStateException("La ranura " + slot + " ya estaba libre");
+            }
+            block.put(base + PLAYERS, (byte) 0);
+            block.putInt(base + EDGES, owner.freeHead);
+            owner.freeHead = slot;
+            owner.used--;
+        }
+    }
+
+    /**
+     * Cantidad de salas ocupadas.
+     *
+     * @return Ranuras en uso.
+     */
+    public int size() {
+        int used = 0;
+        for (Stripe stripe : stripes) {
+            used += stripe.used;
+        }
+        return used;
+    }
+
+    /**
+     * Aplica una jugada con las mismas reglas que GameRoom.applyMove.
+     *
+     * @param slot   Ranura de la sala.
+     * @param player Índice del jugador que juega.
+     * @param edge   Índice de la línea a dibujar.
+     * @return Cantidad de cuadrados completados (0 a 2) o un código de error de GameRoom.
+     */
+    public int applyMove(int slot, int player, int edge) {
+        if (edge < 0 || edge >= GameRoom.EDGE_COUNT) {
+            return GameRoom.INVALID_EDGE;
+        }
+        ByteBuffer block = block(slot);
+        int base = offset(slot);
+        int edges = block.getInt(base + EDGES);
+        if (edges == GameRoom.FULL_BOARD) {
+            return GameRoom.GAME_OVER;
+        }
+        if (player != block.get(base + CURRENT)) {
+            return GameRoom.NOT_YOUR_TURN;
+        }
+        int bit = 1 << edge;
+        if ((edges & bit) != 0) {
+            return GameRoom.EDGE_TAKEN;
+        }
+        edges |= bit;
+        block.putInt(base + EDGES, edges);
+        block.putInt(base + SEQUENCE, block.getInt(base + SEQUENCE) + 1);
+
+        // Solo se revisan los cuadrados que toca la línea nueva
+        int completed = 0;
+        for (int box : EDGE_BOXES[edge]) {
+            int mask = GameRoom.boxMask(box);
+            if ((edges & mask) == mask) {
+                block.put(base + OWNERS + box, (byte) player);
+                completed++;
+            }
+        }
+        block.put(base + SCORES + player, (byte) (block.get(base + SCORES + player) + completed));
+        block.put(base + CURRENT, (byte) ((player + 1) % block.get(base + PLAYERS)));
+        return completed;
+    }
+
+    /**
+     * Pasa el turno al siguiente jugador sin dibujar ninguna línea.
+     *
+     * @param slot Ranura de la sala.
+     * @return true si se pasó el turno, false si la partida ya terminó.
+     */
+    public boolean skipTurn(int slot) {
+        ByteBuffer block = block(slot);
+        int base = offset(slot);
+        if (block.getInt(base + EDGES) == GameRoom.FULL_BOARD) {
+            return false;
+        }
+        block.put(base + CURRENT, (byte) ((block.get(base + CURRENT) + 1) % block.get(base + PLAYERS)));
+        return true;
+    }
+
+    /**
+     * Guarda una jugada empaquetada para la repetición.
+     *
+     * @param slot  Ranura de la sala.
+     * @param index Posición de la jugada (desde 0).
+     * @param move  Jugada empaquetada con ReplayFile.packMove.
+     */
+    public void recordMove(int slot, int index, int move) {
+        block(slot).putInt(offset(slot) + MOVES + index * Integer.BYTES, move);
+    }
+
+    /**
+     * Obtiene una jugada guardada.
+     *
+     * @param slot  Ranura de la sala.
+     * @param index Posición de la jugada (desde 0).
+     * @return Jugada empaquetada.
+     */
+    public int move(int slot, int index) {
+        return block(slot).getInt(offset(slot) + MOVES + index * Integer.BYTES);
+    }
+
+    /**
+     * Copia las jugadas guardadas (por ejemplo, para escribir la repetición).
+     *
+     * @param slot Ranura de la sala.
+     * @return Jugadas empaquetadas, tantas como la secuencia.
+     */
+    public int[] moves(int slot) {
+        int[] moves = new int[getSequence(slot)];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = move(slot, i);
+        }
+        return moves;
+    }
+
+    /**
+     * Consume una ficha de la cubeta de jugadas de la sala, guardada en la ranura.
+     *
+     * @param slot    Ranura de la sala.
+     * @param limiter Tasa y ráfaga de las salas.
+     * @return true si la jugada está permitida.
+     */
+    public boolean tryAcquireMove(int slot, TokenBucket limiter) {
+        return limiter.tryAcquire(block(slot), offset(slot) + LIMITER);
+    }
+
+    /**
+     * Marca como vencida la reserva de un asiento.
+     *
+     * @param slot Ranura de la sala.
+     * @return Asientos vencidos, contando este.
+     */
+    public int expireSeat(int slot) {
+        ByteBuffer block = block(slot);
+        int base = offset(slot);
+        int expired = block.get(base + EXPIRED) + 1;
+        block.put(base + EXPIRED, (byte) expired);
+        return expired;
+    }
+
+    public long getTurnStarted(int slot) {
+        return block(slot).getLong(offset(slot) + TURN_STARTED);
+    }
+
+    public void setTurnStarted(int slot, long nanos) {
+        block(slot).putLong(offset(slot) + TURN_STARTED, nanos);
+    }
+
+    public boolean isFinished(int slot) {
+        return getEdges(slot) == GameRoom.FULL_BOARD;
+    }
+
+    public int getEdges(int slot) {
+        return block(slot).getInt(offset(slot) + EDGES);
+    }
+
+    public int getSequence(int slot) {
+        return block(slot).getInt(offset(slot) + SEQUENCE);
+    }
+
+    public int getPlayerCount(int slot) {
+        return block(slot).get(offset(slot) + PLAYERS);
+    }
+
+    public int getCurrentPlayer(int slot) {
+        return block(slot).get(offset(slot) + CURRENT);
+    }
+
+    public int getScore(int slot, int player) {
+        return block(slot).get(offset(slot) + SCORES + player);
+    }
+
+    public int getBoxOwner(int slot, int box) {
+        return block(slot).get(offset(slot) + OWNERS + box);
+    }
+
+    /**
+     * Obtiene el jugador con mayor puntuación.
+     *
+     * @param slot Ranura de la sala.
+     * @return Índice del ganador o -1 si hay empate en el primer lugar.
+     */
+    public int getWinner(int slot) {
+        int winner = -1;
+        int best = -1;
+        for (int i = 0; i < getPlayerCount(slot); i++) {
+            int score = getScore(slot, i);
+            if (score > best) {
+                best = score;
+                winner = i;
+            } else if (score == best) {
+                winner = -1;
+            }
+        }
+        return winner;
+    }
+
+    private ByteBuffer block(int slot) {
+        return blockArray[slot >>> BLOCK_SHIFT];
+    }
+
+    private static int offset(int slot) {
+        return (slot & (BLOCK_SLOTS - 1)) * SLOT_BYTES;
+    }
+
+    private static void clear(ByteBuffer block, int base, int playerCount) {
+        for (int i = 0; i < SLOT_BYTES; i += Long.BYTES) {
+            block.putLong(base + i, 0L);
+        }
+        for (int box = 0; box < GameRoom.BOX_COUNT; box++) {
+            block.put(base + OWNERS + box, (byte) -1);
+        }
+        block.put(base + PLAYERS, (byte) playerCount);
+        block.putDouble(base + LIMITER, Double.POSITIVE_INFINITY); // Cubeta llena: TokenBucket la recorta a su ráfaga
+    }
+
+    /**
+     * Saca la primera ranura libre de una franja.
+     *
+     * @return Número de ranura o -1 si la franja está vacía.
+     */
+    private int take(Stripe stripe) {
+        synchronized (stripe) {
+            int slot = stripe.freeHead;
+            if (slot >= 0) {
+                stripe.freeHead = block(slot).getInt(offset(slot) + EDGES);
+                stripe.used++;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Busca una ranura libre en las demás franjas, saltando sin bloquear las que se ven vacías.
+     *
+     * @return Número de ranura o -1 si todas están vacías.
+     */
+    private int steal(int home) {
+        for (int i = 1; i < STRIPES; i++) {
+            Stripe other = stripes[(home + i) & (STRIPES - 1)];
+            if (other.freeHead >= 0) {
+                int slot = take(other);
+                if (slot >= 0) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Agrega un bloque y encadena sus ranuras a la lista libre de una franja.
+     */
+    private void grow(Stripe stripe) {
+        int first;
+        synchronized (blocks) {
+            first = blocks.size() * BLOCK_SLOTS;
+            if (first + BLOCK_SLOTS < 0) {
+                throw new IllegalStateException("El almacén de salas está lleno");
+            }
+            ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SLOTS * SLOT_BYTES).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < BLOCK_SLOTS - 1; i++) {
+                block.putInt(i * SLOT_BYTES + EDGES, first + i + 1);
+            }
+            Stripe[] owners = java.util.Arrays.copyOf(blockOwners, blocks.size() + 1);
+            owners[blocks.size()] = stripe;
+            blocks.add(block);
+            blockOwners = owners; // Se publica antes que el bloque: quien ve una ranura ya ve a su dueña
+            blockArray = blocks.toArray(new ByteBuffer[0]);
+        }
+        synchronized (stripe) {
+            int last = first + BLOCK_SLOTS - 1;
+            block(last).putInt(offset(last) + EDGES, stripe.freeHead);
+            stripe.freeHead = first;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Compara el costo en heap y en recolección de mantener muchas partidas vivas como objetos GameRoom y como
+ * ranuras de RoomStore. Crea todas las salas, juega una jugada por sala en rondas hasta que terminan y, a
+ * mitad de camino, mide el heap ocupado después de una recolección completa.
+ *
+ * Esas dos corridas solo miden el estado de la partida. La tercera mide lo que de verdad cuesta una sala del
+ * servidor: abre salas reales de GameServer (ServerRoom) con conexiones en memoria y reporta cuánto heap
+ * agrega cada sala sobre el de sus conexiones ya abiertas: el objeto, sus arreglos, los tokens de sesión, el
+ * reloj de turnos y las entradas en los mapas del servidor.
+ *
+ * Uso: java -Xmx2g RoomStoreBenchmark [salas]
+ */
+public class RoomStoreBenchmark {
+    private static final int MAX_SERVER_ROOMS = 50_000; // Cada sala del servidor lleva dos conexiones con sus buffers
+    private static final int PIPE_BYTES = 1024; // Buffer de cada sentido de las conexiones en memoria
+
+    /**
+     * @param args Cantidad de salas simultáneas (por defecto 500.000).
+     */
+    public static void main(String[] args) {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        System.out.printf("%d salas de 2 jugadores%n", rooms);
+        report("GameRoom (heap)", runHeap(rooms));
+        report("RoomStore (fuera del heap)", runOffHeap(rooms));
+        int serverRooms = Math.min(rooms, MAX_SERVER_ROOMS);
+        long perRoom = runServer(serverRooms);
+        System.out.printf("%-28s heap %,8d B por sala sin contar sus conexiones, más %d B en RoomStore (%d salas)%n",
+                "ServerRoom (GameServer)", perRoom, RoomStore.SLOT_BYTES, serverRooms);
+    }
+
+    /**
+     * Abre salas reales en un GameServer con transporte loopback. Las conexiones llegan como desde la pasarela
+     * del clúster (routedJoins), así no se emparejan solas: primero se mide el heap con todas abiertas y luego
+     * con cada par sentado en su sala por un mensaje join.
+     *
+     * @return Bytes de heap por sala.
+     */
+    private static long runServer(int rooms) {
+        Properties properties = new Properties();
+        properties.setProperty("transport", "loopback");
+        properties.setProperty("routedJoins", "true");
+        properties.setProperty("replayDir", "");
+        properties.setProperty("maxConnections", "0");
+        properties.setProperty("maxRooms", "0");
+        GameServer server = new GameServer(ServerConfig.fromProperties(properties));
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // El servidor anuncia cada conexión
+        try {
+            server.start();
+            GameServer.ClientHandler[] handlers = new GameServer.ClientHandler[rooms * 2];
+            ByteArrayOutputStream joins = new ByteArrayOutputStream();
+            for (int i = 0; i < handlers.length; i++) {
+                LoopbackConnection[] pair = LoopbackConnection.pair(PIPE_BYTES);
+                handlers[i] = server.attach(pair[1]);
+                joins.writeBytes(GameDataCodec.encode(GameData.createJoinData(i / 2 + 1, 2)).getBytes(StandardCharsets.UTF_8));
+                joins.write('\n');
+            }
+            BoundedLineReader reader = new BoundedLineReader(new ByteArrayInputStream(joins.toByteArray()), 4096);
+            long before = usedHeapAfterGc();
+            for (GameServer.ClientHandler handler : handlers) {
+                handler.handleLine(reader, reader.readLineBytes());
+            }
+            long after = usedHeapAfterGc();
+            if (ServerMetrics.get("server.rooms") != rooms) {
+                throw new IllegalStateException("Se abrieron " + ServerMetrics.get("server.rooms") + " salas de " + rooms);
+            }
+            return (after - before) / rooms;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            server.stop();
+            System.setOut(console);
+        }
+    }
+
+    private static long[] runHeap(int rooms) {
+        long[] gcBefore = gcTotals();
+        long start = System.nanoTime();
+        GameRoom[] games = new GameRoom[rooms];
+        int[][] moves = new int[rooms][]; // Igual que el servidor, cada sala guarda sus jugadas
+        for (int i = 0; i < rooms; i++) {
+            games[i] = new GameRoom(i, 2);
+            moves[i] = new int[GameRoom.EDGE_COUNT];
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        long heap = 0;
+        for (int round = 0; round < GameRoom.EDGE_COUNT; round++) {
+            for (int i = 0; i < rooms; i++) {
+                int edge = freeEdge(games[i].getEdges(), random);
+                games[i].applyMove(games[i].getCurrentPlayer(), edge);
+                moves[i][round] = ReplayFile.packMove(edge, 0, round);
+            }
+            if (round == GameRoom.EDGE_COUNT / 2) {
+                heap = usedHeapAfterGc();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] gcAfter = gcTotals();
+        return new long[]{heap, elapsed, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], checksum(games)};
+    }
+
+    private static long[] runOffHeap(int rooms) {
+        long[] gcBefore = gcTotals();
+        long start = System.nanoTime();
+        RoomStore store = new RoomStore();
+        int[] slots = new int[rooms];
+        for (int i = 0; i < rooms; i++) {
+            slots[i] = store.allocate(2);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        long heap = 0;
+        for (int round = 0; round < GameRoom.EDGE_COUNT; round++) {
+            for (int i = 0; i < rooms; i++) {
+                int slot = slots[i];
+                int edge = freeEdge(store.getEdges(slot), random);
+                store.applyMove(slot, store.getCurrentPlayer(slot), edge);
+                store.recordMove(slot, round, ReplayFile.packMove(edge, 0, round));
+            }
+            if (round == GameRoom.EDGE_COUNT / 2) {
+                heap = usedHeapAfterGc();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] gcAfter = gcTotals();
+        long sum = 0;
+        for (int slot : slots) {
+            sum += store.getScore(slot, 0) * 31L + store.getWinner(slot);
+        }
+        return new long[]{heap, elapsed, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], sum};
+    }
+
+    private static int freeEdge(int edges, SplittableRandom random) {
+        int free = ~edges & GameRoom.FULL_BOARD;
+        int pick = random.nextInt(Integer.bitCount(free));
+        for (int i = 0; i < pick; i++) {
+            free &= free - 1; // Quita el bit libre más bajo
+        }
+        return Integer.numberOfTrailingZeros(free);
+    }
+
+    private static long checksum(GameRoom[] games) {
+        long sum = 0;
+        for (GameRoom game : games) {
+            sum += game.getScore(0) * 31L + game.getWinner();
+        }
+        return sum;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return new long[]{count, millis};
+    }
+
+    private static void report(String name, long[] result) {
+        System.out.printf("%-28s heap %,8d KB  tiempo %,6d ms  recolecciones %d (%d ms)  [%d]%n",
+                name, result[0] / 1024, result[1] / 1_000_000, result[2], result[3], result[4]);
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Configuración del servidor. Los valores se leen, en orden de prioridad, de las propiedades del sistema
+ * (-Dconnectdots.port=12345), de un archivo indicado con "--config archivo.properties" y de los valores por defecto.
+ */
+public class ServerConfig {
+    private static final String PREFIX = "connectdots."; // Prefijo de las propiedades del sistema
+
+    private int port = 12345; // Puerto de juego
+    private String transport = "tcp"; // "tcp", "unix" (socket de dominio Unix en socketPath) o "loopback" (solo conexiones en memoria con GameServer.connect)
+    private String socketPath = "connectdots.sock"; // Ruta del socket de dominio Unix
+    private String adminHost = "127.0.0.1"; // Dirección de la interfaz de administración
+    private int adminPort = 12346; // Puerto de administración (0 para desactivarlo)
+    private int defaultPlayers = 2; // Jugadores por sala al arrancar
+    private long pairingIntervalMs = 250; // Cada cuánto se ejecuta un lote de emparejamiento
+    private boolean rematch = true; // Al terminar una partida, los jugadores conectados vuelven a la cola con su rating nuevo
+    private String replayDir = "replays"; // Carpeta de repeticiones (vacía para no guardarlas)
+    private String captureDir = ""; // Carpeta de capturas de sesión para CaptureReplay (vacía para no capturar)
+    private long sessionGraceMs = 30000; // Tiempo que se reserva el asiento de un cliente desconectado
+
+    // Relojes de turno y latidos (0 los desactiva)
+    private long turnTimeoutMs = 30000; // Tiempo máximo de un turno
+    private String turnTimeoutAction = "skip"; // Qué hacer al vencer un turno: "skip" pasa el turno, "bot" juega por el ausente
+    private long heartbeatIntervalMs = 10000; // Cada cuánto se envía un ping a cada conexión
+    private long idleTimeoutMs = 30000; // Tiempo sin recibir nada para cerrar una conexión
+
+    // Límites de tasa y control de admisión (una tasa 0 desactiva el límite)
+    private double connectionRatePerSec = 20; // Mensajes por segundo que acepta cada conexión
+    private int connectionBurst = 40; // Mensajes seguidos que acepta cada conexión
+    private double roomRatePerSec = 20; // Jugadas por segundo que acepta cada sala
+    private int roomBurst = 20; // Jugadas seguidas que acepta cada sala
+    private int maxThrottledMessages = 200; // Mensajes descartados seguidos antes de cerrar la conexión (0 nunca)
+    private int maxInflightBytes = 4096; // Bytes máximos de una línea sin terminar por conexión
+    private int maxConnections = 10000; // Conexiones simultáneas (0 sin límite)
+    private int maxRooms = 5000; // Salas en juego simultáneas (0 sin límite)
+
+    // Modo clúster
+    private String nodeId = "node-1"; // Nombre único del nodo o pasarela
+    private String host = "127.0.0.1"; // Dirección que el nodo anuncia a los demás
+    private int gossipPort = 0; // Puerto de gossip (0 para no participar en un clúster)
+    private String seeds = ""; // Nodos semilla "host:puerto,host:puerto"
+    private long gossipIntervalMs = 500; // Cada cuánto se intercambia la lista de miembros
+    private long failureTimeoutMs = 3000; // Tiempo sin noticias para dar un nodo por caído
+    private boolean routedJoins = false; // Las conexiones esperan un mensaje join de la pasarela
+
+    /**
+     * Configuración con los valores por defecto.
+     *
+     * @return Configuración nueva.
+     */
+    public static ServerConfig defaults() {
+        return new ServerConfig();
+    }
+
+    /**
+     * Carga la configuración a partir de los argumentos de la línea de comandos.
+     *
+     * @param args Argumentos; se reconoce "--config archivo.properties".
+     * @return Configuración cargada.
+     * @throws IOException Si no se puede leer el archivo indicado.
+     */
+    public static ServerConfig load(String[] args) throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("--config".equals(args[i])) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(args[i + 1]))) {
+                    properties.load(reader);
+                }
+            }
+        }
+        // Las propiedades del sistema tienen prioridad sobre el archivo
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PREFIX)) {
+                properties.setProperty(name.substring(PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return fromProperties(properties);
+    }
+
+    /**
+     * Crea la configuración a partir de propiedades sin prefijo (port, adminPort, ...).
+     *
+     * @param properties Propiedades a leer.
+     * @return Configuración nueva.
+     */
+    public static ServerConfig fromProperties(Properties properties) {
+        ServerConfig config = new ServerConfig();
+        config.port = Integer.parseInt(properties.getProperty("port", String.valueOf(config.port)));
+        config.transport = properties.getProperty("transport", config.transport);
+        config.socketPath = properties.getProperty("socketPath", config.socketPath);
+        config.adminHost = properties.getProperty("adminHost", config.adminHost);
+        config.adminPort = Integer.parseInt(properties.getProperty("adminPort", String.valueOf(config.adminPort)));
+        config.defaultPlayers = Integer.parseInt(properties.getProperty("defaultPlayers", String.valueOf(config.defaultPlayers)));
+        config.pairingIntervalMs = Long.parseLong(properties.getProperty("pairingIntervalMs", String.valueOf(config.pairingIntervalMs)));
+        config.rematch = Boolean.parseBoolean(properties.getProperty("rematch", String.valueOf(config.rematch)));
+        config.replayDir = properties.getProperty("replayDir", config.replayDir);
+        config.captureDir = properties.getProperty("captureDir", config.captureDir);
+        config.sessionGraceMs = Long.parseLong(properties.getProperty("sessionGraceMs", String.valueOf(config.sessionGraceMs)));
+        config.turnTimeoutMs = Long.parseLong(properties.getProperty("turnTimeoutMs", String.valueOf(config.turnTimeoutMs)));
+        config.turnTimeoutAction = properties.getProperty("turnTimeoutAction", config.turnTimeoutAction);
+        config.heartbeatIntervalMs = Long.parseLong(properties.getProperty("heartbeatIntervalMs", String.valueOf(config.heartbeatIntervalMs)));
+        config.idleTimeoutMs = Long.parseLong(properties.getProperty("idleTimeoutMs", String.valueOf(config.idleTimeoutMs)));
+        config.connectionRatePerSec = Double.parseDouble(properties.getProperty("connectionRatePerSec", String.valueOf(config.connectionRatePerSec)));
+        config.connectionBurst = Integer.parseInt(properties.getProperty("connectionBurst", String.valueOf(config.connectionBurst)));
+        config.roomRatePerSec = Double.parseDouble(properties.getProperty("roomRatePerSec", String.valueOf(config.roomRatePerSec)));
+        config.roomBurst = Integer.parseInt(properties.getProperty("roomBurst", String.valueOf(config.roomBurst)));
+        config.maxThrottledMessages = Integer.parseInt(properties.getProperty("maxThrottledMessages", String.valueOf(config.maxThrottledMessages)));
+        config.maxInflightBytes = Integer.parseInt(properties.getProperty("maxInflightBytes", String.valueOf(config.maxInflightBytes)));
+        config.maxConnections = Integer.parseInt(properties.getProperty("maxConnections", String.valueOf(config.maxConnections)));
+        config.maxRooms = Integer.parseInt(properties.getProperty("maxRooms", String.valueOf(config.maxRooms)));
+        config.nodeId = properties.getProperty("nodeId", config.nodeId);
+        config.host = properties.getProperty("host", config.host);
+        config.gossipPort = Integer.parseInt(properties.getProperty("gossipPort", String.valueOf(config.gossipPort)));
+        config.seeds = properties.getProperty("seeds", config.seeds);
+        config.gossipIntervalMs = Long.parseLong(properties.getProperty("gossipIntervalMs", String.valueOf(config.gossipIntervalMs)));
+        config.failureTimeoutMs = Long.parseLong(properties.getProperty("failureTimeoutMs", String.valueOf(config.failureTimeoutMs)));
+        config.routedJoins = Boolean.parseBoolean(properties.getProperty("routedJoins", String.valueOf(config.routedJoins)));
+        return config;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public String getSocketPath() {
+        return socketPath;
+    }
+
+    public String getAdminHost() {
+        return adminHost;
+    }
+
+    public int getAdminPort() {
+        return adminPort;
+    }
+
+    public int getDefaultPlayers() {
+        return defaultPlayers;
+    }
+
+    public long getPairingIntervalMs() {
+        return pairingIntervalMs;
+    }
+
+    public boolean isRematch() {
+        return rematch;
+    }
+
+    public String getReplayDir() {
+        return replayDir;
+    }
+
+    public String getCaptureDir() {
+        return captureDir;
+    }
+
+    public long getSessionGraceMs() {
+        return sessionGraceMs;
+    }
+
+    public long getTurnTimeoutMs() {
+        return turnTimeoutMs;
+    }
+
+    public String getTurnTimeoutAction() {
+        return turnTimeoutAction;
+    }
+
+    public long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public double getConnectionRatePerSec() {
+        return connectionRatePerSec;
+    }
+
+    public int getConnectionBurst() {
+        return connectionBurst;
+    }
+
+    public double getRoomRatePerSec() {
+        return roomRatePerSec;
+    }
+
+    public int getRoomBurst() {
+        return roomBurst;
+    }
+
+    public int getMaxThrottledMessages() {
+        return maxThrottledMessages;
+    }
+
+    public int getMaxInflightBytes() {
+        return maxInflightBytes;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxRooms() {
+        return maxRooms;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getGossipPort() {
+        return gossipPort;
+    }
+
+    public String getSeeds() {
+        return seeds;
+    }
+
+    public long getGossipIntervalMs() {
+        return gossipIntervalMs;
+    }
+
+    public long getFailureTimeoutMs() {
+        return failureTimeoutMs;
+    }
+
+    public boolean isRoutedJoins() {
+        return routedJoins;
+    }
+
+    /**
+     * Activa la espera de mensajes join (lo usan los nodos del clúster).
+     *
+     * @param routedJoins true si las conexiones llegan desde una pasarela.
+     */
+    public void setRoutedJoins(boolean routedJoins) {
+        this.routedJoins = routedJoins;
+    }
+}
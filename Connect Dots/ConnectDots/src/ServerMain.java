@@ -0,0 +1,36 @@
+import java.io.IOException;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Punto de entrada del servidor sin pantalla. No carga JavaFX: arranca el servidor de juego desde la
+ * configuración y abre la interfaz de administración a la que se conecta la consola gráfica (Server).
+ *
+ * Uso: java ServerMain [--config servidor.properties]
+ */
+public class ServerMain {
+
+    /**
+     * @param args Argumentos de la línea de comandos (ver ServerConfig).
+     * @throws IOException Si no se pueden abrir los puertos.
+     */
+    public static void main(String[] args) throws IOException {
+        ServerConfig config = ServerConfig.load(args);
+        GameServer server = new GameServer(config);
+        server.start();
+
+        AdminServer admin = null;
+        if (config.getAdminPort() > 0) {
+            admin = new AdminServer(server, config);
+            admin.start();
+            System.out.println("Administración disponible en " + config.getAdminHost() + ":" + config.getAdminPort());
+        }
+
+        AdminServer adminToStop = admin;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (adminToStop != null) {
+                adminToStop.stop();
+            }
+            server.stop();
+        }));
+    }
+}
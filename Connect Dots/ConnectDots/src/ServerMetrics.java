@@ -0,0 +1,105 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Registro de métricas del servidor. Guarda contadores y medidores por nombre para que la interfaz
+ * de administración y las herramientas externas puedan consultar el progreso del servidor.
+ */
+public final class ServerMetrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>(); // Contadores acumulados
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>(); // Valores leídos al consultar
+
+    private ServerMetrics() {
+    }
+
+    /**
+     * Incrementa en uno un contador.
+     *
+     * @param name Nombre del contador.
+     */
+    public static void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * Suma un valor a un contador.
+     *
+     * @param name  Nombre del contador.
+     * @param delta Valor a sumar.
+     */
+    public static void add(String name, long delta) {
+        counter(name).add(delta);
+    }
+
+    /**
+     * Obtiene el contador con el nombre indicado, creándolo si no existe. Conviene guardar la
+     * referencia en los caminos calientes para no buscar en el mapa en cada evento.
+     *
+     * @param name Nombre del contador.
+     * @return Contador asociado al nombre.
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Registra un medidor cuyo valor se calcula al momento de consultar las métricas.
+     *
+     * @param name  Nombre del medidor.
+     * @param gauge Función que devuelve el valor actual.
+     */
+    public static void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Elimina un medidor registrado.
+     *
+     * @param name Nombre del medidor.
+     */
+    public static void unregisterGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * Obtiene el valor actual de un contador o medidor.
+     *
+     * @param name Nombre de la métrica.
+     * @return Valor actual o 0 si no existe.
+     */
+    public static long get(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter != null) {
+            return counter.sum();
+        }
+        LongSupplier gauge = gauges.get(name);
+        return gauge != null ? gauge.getAsLong() : 0;
+    }
+
+    /**
+     * Toma una foto de todas las métricas ordenadas por nombre.
+     *
+     * @return Mapa con el valor de cada métrica.
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((name, counter) -> result.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> result.put(name, gauge.getAsLong()));
+        return result;
+    }
+
+    /**
+     * Da formato de texto a las métricas, una por línea ("nombre valor").
+     *
+     * @return Texto con todas las métricas.
+     */
+    public static String format() {
+        StringBuilder text = new StringBuilder();
+        snapshot().forEach((name, value) -> text.append(name).append(' ').append(value).append('\n'));
+        return text.toString();
+    }
+}
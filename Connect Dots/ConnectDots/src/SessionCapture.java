@@ -0,0 +1,205 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Captura de sesiones del servidor para repetirlas después con CaptureReplay. Registra, en el orden en que el
+ * servidor los recibe, la apertura de cada conexión, cada línea que envía el cliente (tal cual llegó) y el
+ * cierre, con los nanosegundos transcurridos desde el inicio de la captura.
+ *
+ * Cada mensaje y cada cierre guardan además la secuencia de la sala del cliente en ese momento, o -1 si no tenía
+ * sala. Al repetir, el registro espera a que la conexión esté sentada y haya visto esa secuencia, así las jugadas
+ * llegan en el mismo orden relativo que en la sesión original y se aceptan o rechazan igual.
+ *
+ * Formato: encabezado de 13 bytes (firma, versión, hora de inicio en milisegundos) y luego registros con
+ * nanosegundos (long), cliente (int), tipo (byte), secuencia (int), largo (int) y los bytes del mensaje.
+ */
+public final class SessionCapture implements Closeable {
+    public static final int MAGIC = 0x43444350; // "CDCP"
+    public static final byte VERSION = 1;
+    public static final String EXTENSION = ".cdcap";
+
+    public static final byte OPEN = 0; // Conexión nueva
+    public static final byte MESSAGE = 1; // Línea recibida
+    public static final byte CLOSE = 2; // Conexión cerrada
+
+    private final DataOutputStream out; // Se escribe con el bloqueo de la captura
+    private final long startNanos; // Origen de los tiempos
+    private boolean failed = false; // Un error de escritura detiene la captura, no el servidor
+
+    /**
+     * Crea el archivo de captura y escribe el encabezado.
+     *
+     * @param file Archivo de destino.
+     * @throws IOException Si no se puede crear.
+     */
+    public SessionCapture(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Registra una conexión nueva.
+     *
+     * @param clientId Identificador del cliente.
+     */
+    public void opened(int clientId) {
+        record(OPEN, clientId, -1, null, 0);
+    }
+
+    /**
+     * Registra una línea recibida. Copia los bytes al buffer del archivo, sin crear objetos.
+     *
+     * @param clientId Identificador del cliente.
+     * @param sequence Secuencia de la sala del cliente al recibir la línea (-1 si no tiene sala).
+     * @param line     Buffer con la línea, sin el salto de línea.
+     * @param length   Cantidad de bytes de la línea.
+     */
+    public void message(int clientId, int sequence, byte[] line, int length) {
+        record(MESSAGE, clientId, sequence, line, length);
+    }
+
+    /**
+     * Registra el cierre de una conexión.
+     *
+     * @param clientId Identificador del cliente.
+     * @param sequence Secuencia de la sala del cliente al cerrarse (-1 si no tiene sala).
+     */
+    public void closed(int clientId, int sequence) {
+        record(CLOSE, clientId, sequence, null, 0);
+    }
+
+    private synchronized void record(byte kind, int clientId, int sequence, byte[] line, int length) {
+        if (failed) {
+            return;
+        }
+        try {
+            out.writeLong(System.nanoTime() - startNanos); // Se toma con el bloqueo: los tiempos quedan en orden
+            out.writeInt(clientId);
+            out.writeByte(kind);
+            out.writeInt(sequence);
+            out.writeInt(length);
+            if (length > 0) {
+                out.write(line, 0, length);
+            }
+            ServerMetrics.increment("capture.records");
+        } catch (IOException e) {
+            failed = true;
+            ServerMetrics.increment("capture.errors");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Vacía el buffer y cierra el archivo.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Lector secuencial de una captura. Reutiliza el buffer del mensaje entre registros.
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final long startMillis;
+        private long nanos;
+        private int clientId;
+        private byte kind;
+        private int sequence;
+        private int length;
+        private byte[] line = new byte[256];
+
+        /**
+         * Abre una captura y valida su encabezado.
+         *
+         * @param file Archivo de captura.
+         * @throws IOException Si no se puede leer o no es una captura.
+         */
+        public Reader(Path file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                in.close();
+                throw new IOException("No es una captura de sesión: " + file);
+            }
+            startMillis = in.readLong();
+        }
+
+        /**
+         * Avanza al siguiente registro.
+         *
+         * @return false al llegar al final del archivo.
+         * @throws IOException Si el archivo está dañado.
+         */
+        public boolean next() throws IOException {
+            try {
+                nanos = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            clientId = in.readInt();
+            kind = in.readByte();
+            sequence = in.readInt();
+            length = in.readInt();
+            if (length > line.length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            in.readFully(line, 0, length);
+            return true;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public int getClientId() {
+            return clientId;
+        }
+
+        public byte getKind() {
+            return kind;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return Buffer con los bytes del mensaje actual (válido hasta el próximo next).
+         */
+        public byte[] getLine() {
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
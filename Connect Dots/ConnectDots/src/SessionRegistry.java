@@ -0,0 +1,134 @@
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Registro de sesiones para reanudar partidas. Cada asiento recibe un token aleatorio al sentarse; si la
+ * conexión se cae, el asiento queda reservado durante un tiempo de gracia y una conexión nueva puede
+ * recuperarlo presentando el mismo token. Los vencimientos se programan en la rueda de temporizadores del
+ * servidor, la misma de los relojes de turno y los latidos.
+ *
+ * @param <T> Referencia al asiento (por ejemplo, la sala y el número de asiento).
+ */
+public class SessionRegistry<T> {
+    private static final SecureRandom random = new SecureRandom(); // Generador de tokens
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long graceMillis; // Tiempo que se reserva un asiento desconectado
+    private final Map<String, Session<T>> sessions = new ConcurrentHashMap<>(); // Token -> sesión
+    private final TimingWheel timers; // Vence las reservas
+
+    /**
+     * Sesión de un asiento.
+     */
+    private static final class Session<T> {
+        private final T seat;
+        private TimingWheel.Timeout expiry; // Vencimiento pendiente si el asiento está desconectado
+
+        Session(T seat) {
+            this.seat = seat;
+        }
+    }
+
+    /**
+     * Crea un registro de sesiones.
+     *
+     * @param graceMillis Tiempo que se reserva un asiento desconectado.
+     * @param timers      Rueda donde se programan los vencimientos.
+     */
+    public SessionRegistry(long graceMillis, TimingWheel timers) {
+        this.graceMillis = graceMillis;
+        this.timers = timers;
+        ServerMetrics.registerGauge("session.active", sessions::size);
+    }
+
+    /**
+     * Emite un token nuevo para un asiento.
+     *
+     * @param seat Asiento al que pertenece el token.
+     * @return Token de 128 bits en hexadecimal.
+     */
+    public String issue(T seat) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        char[] token = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            token[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            token[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        String value = new String(token);
+        sessions.put(value, new Session<>(seat));
+        return value;
+    }
+
+    /**
+     * Marca el asiento como desconectado. Si nadie lo recupera antes del tiempo de gracia, se descarta
+     * el token y se ejecuta la acción de vencimiento.
+     *
+     * @param token    Token del asiento.
+     * @param onExpire Acción a ejecutar al vencer la reserva.
+     */
+    public void disconnected(String token, Runnable onExpire) {
+        Session<T> session = sessions.get(token);
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            if (session.expiry != null) {
+                session.expiry.cancel();
+            }
+            session.expiry = timers.schedule(() -> {
+                if (sessions.remove(token, session)) {
+                    ServerMetrics.increment("session.expired");
+                    onExpire.run();
+                }
+            }, graceMillis);
+        }
+    }
+
+    /**
+     * Recupera el asiento de un token y cancela su vencimiento.
+     *
+     * @param token Token presentado por la conexión nueva.
+     * @return Asiento reservado o null si el token no existe o ya venció.
+     */
+    public T reclaim(String token) {
+        Session<T> session = token != null ? sessions.get(token) : null;
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            if (session.expiry != null) {
+                session.expiry.cancel();
+                session.expiry = null;
+            }
+        }
+        return sessions.get(token) == session ? session.seat : null;
+    }
+
+    /**
+     * Descarta un token (por ejemplo, al terminar la partida).
+     *
+     * @param token Token a descartar.
+     */
+    public void release(String token) {
+        Session<T> session = token != null ? sessions.remove(token) : null;
+        if (session != null) {
+            synchronized (session) {
+                if (session.expiry != null) {
+                    session.expiry.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta todas las sesiones.
+     */
+    public void clear() {
+        for (String token : sessions.keySet()) {
+            release(token);
+        }
+    }
+}
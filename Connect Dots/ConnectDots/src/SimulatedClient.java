@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Cliente sin pantalla ni puerto serial que juega solo sobre cualquier Connection. Habla el mismo protocolo que
+ * Client: recibe su color, sigue el tablero con los mensajes line y, cuando le toca, juega como el bot del
+ * servidor: una línea que capture, si no una segura y si no cualquier libre, sorteada entre las del grupo. Como
+ * el turno avanza con cada jugada válida, le toca cuando la secuencia recibida módulo la cantidad de jugadores
+ * es su asiento. Responde los ping del servidor y termina cuando la cuadrícula se llena y llegan las
+ * puntuaciones finales. Si se inscribe para torneos (register), sigue conectado después de cada partida y empieza
+ * la siguiente cuando recibe un color con otro token.
+ *
+ * No tiene hilo propio: step procesa lo que ya llegó sin esperar, así un solo hilo mueve a miles de clientes en
+ * el orden que elija (LoopbackSimulation los recorre en un orden sorteado con una semilla). step solo anota que
+ * le toca; después de cada pasada, playDue evalúa en un BoardBatch los tableros de todos los clientes a los que
+ * les toca y envía sus jugadas.
+ */
+public class SimulatedClient {
+    private static final String PONG = GameDataCodec.encode(GameData.createPongData()); // Respuesta a los latidos
+    private static final int MAX_LINE_BYTES = 4096; // Línea más larga que se acepta del servidor
+
+    private final Connection connection; // Conexión con el servidor
+    private final BoundedLineReader in; // Líneas recibidas
+    private final MessageWriter out; // Mensajes al servidor
+    private final int players; // Jugadores de la sala
+    private final SplittableRandom random; // Elige las líneas
+    private int seat = -1; // Asiento recibido con el color (-1 mientras espera sala)
+    private String token; // Token de la sala actual
+    private boolean staying = false; // Inscrito para torneos: no se desconecta al terminar una partida
+    private int gamesFinished = 0; // Partidas terminadas en esta conexión
+    private String color; // Color del asiento
+    private int edges = 0; // Líneas dibujadas (máscara de bits)
+    private int sequence = 0; // Última jugada recibida
+    private int lastPlayed = -1; // Secuencia en la que ya se envió una jugada
+    private boolean moveDue = false; // Le toca jugar y espera a playDue
+    private int scoresSinceLine = 0; // Puntuaciones recibidas después de la última línea
+    private final int[] scores = new int[GameRoom.MAX_PLAYERS]; // Puntuación de cada asiento
+    private volatile boolean finished = false; // La partida terminó y llegaron las puntuaciones finales
+
+    /**
+     * @param connection Conexión con el servidor.
+     * @param players    Jugadores de la sala a la que lo sentará el servidor.
+     * @param seed       Semilla para elegir las líneas.
+     * @throws IOException Si no se pueden obtener los flujos de la conexión.
+     */
+    public SimulatedClient(Connection connection, int players, long seed) throws IOException {
+        this.connection = connection;
+        this.players = players;
+        this.random = new SplittableRandom(seed);
+        this.in = new BoundedLineReader(connection.getInputStream(), MAX_LINE_BYTES);
+        this.out = new MessageWriter(connection.getOutputStream());
+    }
+
+    /**
+     * Se inscribe con un nombre para jugar torneos; desde entonces no se desconecta al terminar cada partida.
+     *
+     * @param name Nombre del jugador.
+     */
+    public void register(String name) {
+        staying = true;
+        out.send(GameDataCodec.encode(GameData.createRegisterData(name)));
+    }
+
+    /**
+     * Procesa los mensajes que ya llegaron y contesta los que lo piden. Al terminar la partida cierra la conexión,
+     * salvo que esté inscrito para torneos.
+     *
+     * @return true si procesó al menos un mensaje.
+     * @throws IOException Si falla la conexión.
+     */
+    public boolean step() throws IOException {
+        boolean progressed = false;
+        while ((staying || !finished) && in.ready()) {
+            int length = in.readLineBytes();
+            if (length < 0) {
+                break;
+            }
+            handle(GameDataCodec.decode(in.lineString(length)));
+            progressed = true;
+        }
+        if (finished && !staying) {
+            connection.close();
+        }
+        return progressed;
+    }
+
+    /**
+     * Cierra la conexión, por ejemplo después de un error.
+     */
+    public void close() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // Ya estaba cerrada
+        }
+    }
+
+    /**
+     * @return true si la partida terminó (sin estar inscrito para torneos) o se cerró la conexión.
+     */
+    public boolean isDone() {
+        return (finished && !staying) || connection.isClosed();
+    }
+
+    private void handle(GameData data) {
+        switch (data.getType()) {
+            case "color":
+                if (data.getToken() != null && !data.getToken().equals(token)) {
+                    startGame(data.getToken());
+                }
+                color = data.getColor();
+                seat = seatOf(color);
+                break;
+            case "line":
+                edges |= 1 << GameRoom.edgeIndex(data.getStartX(), data.getStartY(), data.getEndX(), data.getEndY());
+                sequence = data.getSequence();
+                scoresSinceLine = 0;
+                break;
+            case "score":
+                scores[seatOf(data.getColor())] = data.getScore();
+                scoresSinceLine++;
+                break;
+            case "ping":
+                out.send(PONG);
+                return;
+            default:
+                return;
+        }
+        if (edges == GameRoom.FULL_BOARD) {
+            // La última línea siempre cierra un cuadrado: después llegan las puntuaciones de todos los asientos
+            if (!finished && scoresSinceLine == players) {
+                finished = true;
+                gamesFinished++;
+            }
+        } else if (seat >= 0 && sequence % players == seat && lastPlayed != sequence) {
+            lastPlayed = sequence;
+            moveDue = true;
+        }
+    }
+
+    /**
+     * Envía la jugada de cada cliente al que le toca, evaluando sus tableros juntos en un lote.
+     *
+     * @param clients Clientes simulados.
+     * @param boards  Lote reutilizable para los tableros.
+     */
+    public static void playDue(SimulatedClient[] clients, BoardBatch boards) {
+        boards.clear();
+        for (SimulatedClient client : clients) {
+            if (client.moveDue) {
+                boards.add(client.edges);
+            }
+        }
+        if (boards.size() == 0) {
+            return;
+        }
+        boards.evaluate();
+        int board = 0;
+        for (SimulatedClient client : clients) {
+            if (client.moveDue) {
+                client.moveDue = false;
+                client.play(boards.getPreferred(board++));
+            }
+        }
+    }
+
+    /**
+     * Envía una línea sorteada con la semilla del cliente entre las de una máscara.
+     *
+     * @param moves Líneas posibles.
+     */
+    private void play(int moves) {
+        for (int skip = random.nextInt(Integer.bitCount(moves)); skip > 0; skip--) {
+            moves &= moves - 1;
+        }
+        int edge = Integer.numberOfTrailingZeros(moves);
+        out.send(GameDataCodec.encode(GameData.createLineData(GameRoom.edgeStartX(edge), GameRoom.edgeStartY(edge),
+                GameRoom.edgeEndX(edge), GameRoom.edgeEndY(edge), color)));
+    }
+
+    /**
+     * Deja el tablero en blanco para la partida de una sala nueva.
+     */
+    private void startGame(String newToken) {
+        token = newToken;
+        edges = 0;
+        sequence = 0;
+        lastPlayed = -1;
+        moveDue = false;
+        scoresSinceLine = 0;
+        Arrays.fill(scores, 0);
+        finished = false;
+    }
+
+    private static int seatOf(String color) {
+        for (int i = 0; i < GameRoom.SEAT_COLORS.length; i++) {
+            if (GameRoom.SEAT_COLORS[i].equals(color)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * @param seat Asiento.
+     * @return Última puntuación recibida para ese asiento.
+     */
+    public int getScore(int seat) {
+        return scores[seat];
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getGamesFinished() {
+        return gamesFinished;
+    }
+}
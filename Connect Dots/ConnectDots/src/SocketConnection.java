@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Conexión sobre un socket TCP. Desactiva el algoritmo de Nagle: cada jugada produce varios mensajes cortos
+ * seguidos y, con Nagle, el segundo esperaba la confirmación retrasada del otro extremo (unos 40 ms).
+ */
+public class SocketConnection implements Connection {
+    private final Socket socket; // Socket conectado
+
+    /**
+     * @param socket Socket conectado.
+     * @throws IOException Si no se puede configurar el socket.
+     */
+    public SocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getInetAddress());
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Mide el arranque del servidor sin pantalla: tiempo desde que se lanza el proceso hasta que el puerto de juego
+ * acepta conexiones y hasta que se procesa la primera jugada. Sirve para comparar la JVM normal, la JVM con
+ * archivo AppCDS y la imagen nativa.
+ *
+ * Uso: java StartupBenchmark [ejecuciones] [-- comando del servidor...]
+ * Sin comando se lanza "java -cp (classpath actual) ServerMain". Al comando se le agrega "--config archivo"
+ * con un puerto libre, sin puerto de administración ni repeticiones.
+ */
+public class StartupBenchmark {
+    private static final long TIMEOUT_MS = 30_000; // Tiempo máximo por ejecución
+
+    /**
+     * @param args Cantidad de ejecuciones y, después de "--", el comando que arranca el servidor.
+     * @throws Exception Si el servidor no arranca.
+     */
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        List<String> command = new ArrayList<>();
+        int separator = Arrays.asList(args).indexOf("--");
+        if (args.length > 0 && separator != 0) {
+            runs = Integer.parseInt(args[0]);
+        }
+        if (separator >= 0) {
+            command.addAll(Arrays.asList(args).subList(separator + 1, args.length));
+        } else {
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add("ServerMain");
+        }
+
+        long[] bound = new long[runs];
+        long[] firstMove = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long[] result = measure(command);
+            bound[i] = result[0];
+            firstMove[i] = result[1];
+            System.out.printf("Ejecución %d: puerto abierto %.1f ms, primera jugada %.1f ms%n", i + 1, result[0] / 1e6, result[1] / 1e6);
+        }
+        report("Puerto abierto", bound);
+        report("Primera jugada", firstMove);
+    }
+
+    /**
+     * Lanza el servidor una vez y mide los dos tiempos.
+     *
+     * @return Nanosegundos hasta el puerto abierto y hasta la primera jugada.
+     */
+    private static long[] measure(List<String> baseCommand) throws Exception {
+        int port = freePort();
+        Path config = Files.createTempFile("connectdots-bench", ".properties");
+        Files.write(config, Arrays.asList("port=" + port, "adminPort=0", "pairingIntervalMs=1", "defaultPlayers=2", "replayDir="));
+        List<String> command = new ArrayList<>(baseCommand);
+        command.add("--config");
+        command.add(config.toString());
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            Socket first = connect(port, start);
+            long bound = System.nanoTime() - start;
+            try (Socket second = new Socket("127.0.0.1", port)) {
+                Socket[] sockets = {first, second};
+                BufferedReader[] in = new BufferedReader[2];
+                Socket mover = null;
+                for (int i = 0; i < 2; i++) {
+                    in[i] = new BufferedReader(new InputStreamReader(sockets[i].getInputStream()));
+                    GameData color = GameDataCodec.decode(in[i].readLine());
+                    if (GameRoom.SEAT_COLORS[0].equals(color.getColor())) {
+                        mover = sockets[i]; // El asiento 0 tiene el primer turno
+                    }
+                }
+                PrintWriter out = new PrintWriter(mover.getOutputStream(), true);
+                out.println(GameDataCodec.encode(GameData.createLineData(1, 1, 2, 1, "clientColor")));
+                in[0].readLine(); // Eco de la línea aceptada
+                return new long[]{bound, System.nanoTime() - start};
+            } finally {
+                first.close();
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+            Files.deleteIfExists(config);
+        }
+    }
+
+    /**
+     * Intenta conectarse hasta que el servidor abre el puerto.
+     */
+    private static Socket connect(int port, long start) throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return new Socket("127.0.0.1", port);
+            } catch (IOException e) {
+                if (System.nanoTime() - start > TIMEOUT_MS * 1_000_000) {
+                    throw new IOException("El servidor no abrió el puerto " + port, e);
+                }
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void report(String name, long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s: mínimo %.1f ms, mediana %.1f ms, máximo %.1f ms%n", name,
+                sorted[0] / 1e6, sorted[sorted.length / 2] / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+}
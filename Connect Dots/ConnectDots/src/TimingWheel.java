@@ -0,0 +1,266 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Rueda de temporizadores con hash. El tiempo se divide en ticks y cada casilla de la rueda guarda una lista
+ * doblemente enlazada con los temporizadores que vencen en ella; los que están a más de una vuelta llevan la
+ * cuenta de las vueltas que faltan. Programar y cancelar cuestan O(1) sin importar cuántos temporizadores
+ * haya, y en cada tick solo se recorre una casilla.
+ *
+ * Un solo hilo mueve la rueda. Los demás hilos no tocan las listas: programan y cancelan a través de colas
+ * que el hilo de la rueda vacía al inicio de cada tick. El hilo de la rueda nunca ejecuta las tareas vencidas:
+ * las entrega al ejecutor recibido, así que una tarea que escribe en un socket lento no atrasa los demás
+ * temporizadores.
+ */
+public class TimingWheel {
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000; // Altas procesadas por tick, para no atrasar la rueda
+
+    /**
+     * Temporizador programado.
+     */
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadline; // Momento de vencimiento en nanosegundos desde el inicio de la rueda
+        private volatile int state = PENDING;
+        private long remainingRounds; // Vueltas que faltan (solo lo usa el hilo de la rueda)
+        private Timeout next; // Vecinos dentro de la casilla (solo los usa el hilo de la rueda)
+        private Timeout prev;
+        private Bucket bucket; // Casilla donde está enlazado
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancela el temporizador si todavía no venció.
+         *
+         * @return true si se canceló.
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.cancelled.add(this); // El hilo de la rueda lo desenlaza en el siguiente tick
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+    }
+
+    /**
+     * Casilla de la rueda: lista doblemente enlazada de temporizadores.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+    }
+
+    private final long tickNanos; // Duración de un tick
+    private final Bucket[] wheel; // Casillas (cantidad potencia de dos)
+    private final int mask; // Para calcular la casilla con un AND
+    private final Queue<Timeout> additions = new ConcurrentLinkedQueue<>(); // Temporizadores por enlazar
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>(); // Temporizadores por desenlazar
+    private final AtomicLong pending = new AtomicLong(); // Temporizadores programados sin vencer ni cancelar
+    private final String name; // Nombre del hilo y prefijo de las métricas
+    private final Executor executor; // Ejecuta las tareas vencidas
+    private volatile long startNanos; // Inicio de la rueda
+    private volatile boolean running = false;
+    private Thread worker;
+    private long tick = 0; // Tick actual (solo lo usa el hilo de la rueda)
+
+    /**
+     * Crea la rueda sin iniciarla.
+     *
+     * @param name       Nombre del hilo y prefijo de las métricas.
+     * @param tickMillis Duración de un tick, que es también la precisión de los temporizadores.
+     * @param ticks      Casillas de la rueda (se redondea a potencia de dos).
+     * @param executor   Ejecutor de las tareas vencidas.
+     */
+    public TimingWheel(String name, long tickMillis, int ticks, Executor executor) {
+        if (tickMillis <= 0 || ticks < 1) {
+            throw new IllegalArgumentException("Tick o casillas inválidos: " + tickMillis + ", " + ticks);
+        }
+        int size = 1;
+        while (size < ticks) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.executor = executor;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.startNanos = System.nanoTime();
+        ServerMetrics.registerGauge(name + ".pending", pending::get);
+    }
+
+    /**
+     * Inicia el hilo de la rueda.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Detiene la rueda. Los temporizadores pendientes no se ejecutan.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Programa una tarea. Se puede llamar desde cualquier hilo.
+     *
+     * @param task       Tarea a ejecutar en el ejecutor de la rueda.
+     * @param delayMillis Tiempo de espera.
+     * @return Temporizador que permite cancelar la tarea.
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        pending.incrementAndGet();
+        additions.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Temporizadores pendientes.
+     *
+     * @return Cantidad programada sin vencer ni cancelar.
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = (tick + 1) * tickNanos;
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            removeCancelled();
+            transferAdditions();
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+            pending.decrementAndGet();
+        }
+    }
+
+    private void transferAdditions() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = additions.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state == Timeout.CANCELLED) {
+                continue; // Se canceló antes de enlazarse; removeCancelled ya lo descontó o lo hará
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long target = Math.max(calculated, tick); // Los atrasados vencen en este mismo tick
+            wheel[(int) (target & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket, long deadline) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                Timeout next = bucket.remove(timeout);
+                if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+                    pending.decrementAndGet();
+                    try {
+                        executor.execute(timeout.task);
+                    } catch (RejectedExecutionException e) {
+                        ServerMetrics.increment(name + ".rejected"); // El ejecutor ya se detuvo
+                    }
+                }
+                timeout = next;
+            } else {
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                timeout = timeout.next;
+            }
+        }
+    }
+}
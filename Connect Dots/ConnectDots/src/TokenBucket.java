@@ -0,0 +1,79 @@
+import java.nio.ByteBuffer;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Limitador de tasa por cubeta de fichas. La cubeta se rellena de forma continua a una tasa fija hasta su
+ * capacidad y cada acción consume una ficha; las ráfagas cortas pasan mientras haya fichas acumuladas.
+ *
+ * No es seguro para varios hilos: cada conexión usa la suya desde su propio hilo. Las salas comparten una sola
+ * cubeta con la tasa y la ráfaga, y el estado de cada una (fichas y último relleno) vive en su ranura de
+ * RoomStore; se usa dentro del bloqueo de la sala.
+ */
+public class TokenBucket {
+    private final double capacity; // Fichas máximas acumuladas (tamaño de la ráfaga)
+    private final double refillPerNano; // Fichas que se recuperan por nanosegundo
+    private double tokens; // Fichas disponibles
+    private long lastRefill; // Último momento en que se rellenó la cubeta
+
+    /**
+     * Crea una cubeta llena.
+     *
+     * @param ratePerSecond Acciones permitidas por segundo de forma sostenida.
+     * @param burst         Acciones permitidas de golpe.
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Tasa o ráfaga inválida: " + ratePerSecond + ", " + burst);
+        }
+        this.capacity = burst;
+        this.refillPerNano = ratePerSecond / 1_000_000_000.0;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Crea una cubeta si la tasa está activada.
+     *
+     * @param ratePerSecond Acciones por segundo (0 o menos desactiva el límite).
+     * @param burst         Acciones permitidas de golpe.
+     * @return Cubeta nueva o null si el límite está desactivado.
+     */
+    public static TokenBucket ofRate(double ratePerSecond, int burst) {
+        return ratePerSecond > 0 ? new TokenBucket(ratePerSecond, Math.max(burst, 1)) : null;
+    }
+
+    /**
+     * Intenta consumir una ficha.
+     *
+     * @return true si la acción está permitida.
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Intenta consumir una ficha de una cubeta guardada afuera, con la tasa y la ráfaga de esta.
+     *
+     * @param state  Buffer con el estado: fichas (double) y, a continuación, el último relleno (long).
+     * @param offset Posición del estado en el buffer.
+     * @return true si la acción está permitida.
+     */
+    public boolean tryAcquire(ByteBuffer state, int offset) {
+        long now = System.nanoTime();
+        double available = Math.min(capacity, state.getDouble(offset) + (now - state.getLong(offset + Double.BYTES)) * refillPerNano);
+        state.putLong(offset + Double.BYTES, now);
+        if (available >= 1) {
+            state.putDouble(offset, available - 1);
+            return true;
+        }
+        state.putDouble(offset, available);
+        return false;
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Verifica TournamentScheduler con partidas al azar: cantidad de partidas de cada formato, un solo campeón en
+ * eliminación directa, miles de partidas en curso a la vez, que un fallo termine el torneo con error, que
+ * cancelarlo no empiece más rondas y que cada organizador tenga su propio medidor. Después juega un torneo en
+ * salas de un GameServer en memoria con clientes inscritos (GameServer.tournamentRunner). Termina con código 1
+ * si algo falla.
+ *
+ * Uso: java TournamentCheck [jugadores del torneo grande]
+ */
+public class TournamentCheck {
+    private static final long TIMEOUT_SECONDS = 60; // Espera máxima por cada torneo
+    private static int failures = 0;
+
+    /**
+     * @param args Jugadores del torneo todos contra todos grande (por defecto 200).
+     * @throws Exception Si un torneo no termina a tiempo.
+     */
+    public static void main(String[] args) throws Exception {
+        int large = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        ExecutorService matches = Executors.newFixedThreadPool(4);
+        try {
+            formats(matches);
+            scale(matches, large);
+            failure(matches);
+            cancellation(matches);
+            gauges(matches);
+            serverRooms();
+        } finally {
+            matches.shutdown();
+        }
+        if (failures > 0) {
+            System.out.println("FALLA: " + failures + " verificaciones");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static void formats(ExecutorService matches) {
+        TournamentScheduler scheduler = new TournamentScheduler(4, 64, randomRunner(matches, 1));
+        try {
+            List<TournamentScheduler.Standing> table = run(scheduler, players(9), TournamentScheduler.Format.ROUND_ROBIN);
+            check("todos contra todos: cada uno juega 8", table.stream().allMatch(s -> s.getPlayed() == 8));
+            check("todos contra todos: 36 partidas", table.stream().mapToInt(TournamentScheduler.Standing::getPlayed).sum() == 2 * 36);
+
+            table = run(scheduler, players(16), TournamentScheduler.Format.SWISS);
+            check("suizo: 4 rondas para 16", table.stream().allMatch(s -> s.getPlayed() == 4));
+
+            table = run(scheduler, players(13), TournamentScheduler.Format.SINGLE_ELIMINATION);
+            check("eliminación: un campeón", table.stream().filter(s -> !s.isEliminated()).count() == 1);
+            check("eliminación: el campeón encabeza la tabla", !table.get(0).isEliminated());
+            check("eliminación: 12 partidas", table.stream().mapToInt(TournamentScheduler.Standing::getPlayed).sum() == 2 * 12);
+        } finally {
+            scheduler.shutdown();
+        }
+        System.out.println("Formatos: listo");
+    }
+
+    /**
+     * Un corredor que completa las partidas más tarde mantiene todas las de una ronda en curso a la vez.
+     */
+    private static void scale(ExecutorService matches, int players) {
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        TournamentScheduler.MatchRunner random = randomRunner(matches, 2);
+        TournamentScheduler.MatchRunner delayed = (match, seats) -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return random.play(match, seats)
+                    .thenCompose(result -> CompletableFuture.supplyAsync(() -> result,
+                            CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS)))
+                    .whenComplete((result, error) -> inFlight.decrementAndGet());
+        };
+        TournamentScheduler scheduler = new TournamentScheduler(4, 64, delayed);
+        try {
+            long start = System.nanoTime();
+            List<TournamentScheduler.Standing> table = run(scheduler, players(players), TournamentScheduler.Format.ROUND_ROBIN);
+            long total = table.stream().mapToInt(TournamentScheduler.Standing::getPlayed).sum() / 2;
+            check("grande: todas las partidas", total == (long) players * (players - 1) / 2);
+            check("grande: medidor en cero al terminar", ServerMetrics.get(scheduler.getInflightGauge()) == 0);
+            System.out.printf("Grande: %d partidas en %.3f s, hasta %d en curso%n", total, (System.nanoTime() - start) / 1e9, peak.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void failure(ExecutorService matches) {
+        TournamentScheduler.MatchRunner random = randomRunner(matches, 3);
+        TournamentScheduler.MatchRunner failing = (match, seats) -> match == 3
+                ? CompletableFuture.failedFuture(new IllegalStateException("partida 3"))
+                : random.play(match, seats);
+        TournamentScheduler scheduler = new TournamentScheduler(4, 64, failing);
+        try {
+            run(scheduler, players(8), TournamentScheduler.Format.ROUND_ROBIN);
+            check("fallo: el torneo termina con error", false);
+        } catch (CompletionException e) {
+            check("fallo: el error es el de la partida", e.getCause() instanceof IllegalStateException);
+        } finally {
+            scheduler.shutdown();
+        }
+        System.out.println("Fallos: listo");
+    }
+
+    /**
+     * Las partidas de la primera ronda esperan una señal; el torneo se cancela mientras tanto.
+     */
+    private static void cancellation(ExecutorService matches) throws InterruptedException {
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        TournamentScheduler.MatchRunner random = randomRunner(matches, 4);
+        TournamentScheduler.MatchRunner gated = (match, seats) -> {
+            started.incrementAndGet();
+            return gate.thenCompose(v -> random.play(match, seats));
+        };
+        TournamentScheduler scheduler = new TournamentScheduler(4, 64, gated);
+        try {
+            CompletableFuture<List<TournamentScheduler.Standing>> tournament = scheduler.run(players(8), TournamentScheduler.Format.ROUND_ROBIN);
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (started.get() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            tournament.cancel(false);
+            gate.complete(null);
+            while (ServerMetrics.get(scheduler.getInflightGauge()) > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(50); // Tiempo para que una ronda nueva empezara, si el organizador la encadenara
+            check("cancelación: no empieza otra ronda", started.get() == 4);
+            try {
+                tournament.join();
+                check("cancelación: el futuro queda cancelado", false);
+            } catch (CancellationException e) {
+                // Esperado
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+        System.out.println("Cancelación: listo");
+    }
+
+    private static void gauges(ExecutorService matches) {
+        TournamentScheduler first = new TournamentScheduler(1, 1, randomRunner(matches, 5));
+        TournamentScheduler second = new TournamentScheduler(1, 1, randomRunner(matches, 6));
+        check("medidores: uno por organizador", !first.getInflightGauge().equals(second.getInflightGauge()));
+        first.shutdown();
+        check("medidores: cerrar uno no quita el otro", ServerMetrics.snapshot().containsKey(second.getInflightGauge()));
+        second.shutdown();
+        System.out.println("Medidores: listo");
+    }
+
+    /**
+     * Todos contra todos entre clientes SimulatedClient inscritos en un GameServer en memoria: cada partida se
+     * juega en una sala del servidor. Un jugador sin inscribir hace fallar el torneo.
+     */
+    private static void serverRooms() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("transport", "loopback");
+        properties.setProperty("pairingIntervalMs", "60000"); // Que el emparejamiento no siente a nadie antes de inscribirse
+        properties.setProperty("replayDir", "");
+        properties.setProperty("turnTimeoutMs", "0");
+        properties.setProperty("connectionRatePerSec", "0");
+        properties.setProperty("roomRatePerSec", "0");
+        GameServer server = new GameServer(ServerConfig.fromProperties(properties));
+        TournamentScheduler scheduler = new TournamentScheduler(2, 64, server.tournamentRunner());
+        List<String> names = players(6);
+        SimulatedClient[] clients = new SimulatedClient[names.size()];
+        BoardBatch boards = new BoardBatch(clients.length); // Tableros de los clientes a los que les toca jugar
+        CompletableFuture<List<TournamentScheduler.Standing>> tournament;
+        CompletableFuture<List<TournamentScheduler.Standing>> unregistered;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // El servidor anuncia cada conexión y cada resultado
+        try {
+            server.start();
+            for (int i = 0; i < clients.length; i++) {
+                LoopbackConnection[] pair = LoopbackConnection.pair();
+                server.connect(pair[1]);
+                clients[i] = new SimulatedClient(pair[0], 2, i);
+                clients[i].register(names.get(i));
+            }
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (server.getRegisteredPlayers().size() < clients.length && System.currentTimeMillis() < deadline) {
+                drive(clients, boards);
+            }
+            tournament = scheduler.run(names, TournamentScheduler.Format.ROUND_ROBIN);
+            // El torneo termina con la última jugada; los clientes todavía pueden tener las puntuaciones por leer
+            while ((!tournament.isDone() || !allFinished(clients, 5)) && System.currentTimeMillis() < deadline) {
+                drive(clients, boards);
+            }
+            unregistered = scheduler.run(List.of(names.get(0), "nadie"), TournamentScheduler.Format.ROUND_ROBIN);
+            while (!unregistered.isDone() && System.currentTimeMillis() < deadline) {
+                drive(clients, boards);
+            }
+        } finally {
+            scheduler.shutdown();
+            server.stop();
+            System.setOut(console);
+        }
+        check("salas: el torneo termina", tournament.isDone() && !tournament.isCompletedExceptionally());
+        if (tournament.isDone() && !tournament.isCompletedExceptionally()) {
+            List<TournamentScheduler.Standing> table = tournament.join();
+            check("salas: cada uno juega 5", table.stream().allMatch(s -> s.getPlayed() == 5));
+            check("salas: todos los cuadrados repartidos",
+                    table.stream().mapToInt(TournamentScheduler.Standing::getBoxes).sum() == 15 * GameRoom.BOX_COUNT);
+        }
+        check("salas: cada cliente terminó 5 partidas", allFinished(clients, 5));
+        try {
+            unregistered.getNow(null);
+            check("salas: un jugador sin inscribir hace fallar el torneo", false);
+        } catch (CompletionException e) {
+            check("salas: el error es el del jugador", e.getCause() instanceof IllegalStateException);
+        }
+        System.out.println("Salas del servidor: listo");
+    }
+
+    private static boolean allFinished(SimulatedClient[] clients, int games) {
+        for (SimulatedClient client : clients) {
+            if (client.getGamesFinished() < games) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Procesa lo que recibieron los clientes y envía las jugadas de los que tienen turno; si ninguno recibió
+     * nada, espera un poco.
+     */
+    private static void drive(SimulatedClient[] clients, BoardBatch boards) throws Exception {
+        boolean progressed = false;
+        for (SimulatedClient client : clients) {
+            progressed |= client.step();
+        }
+        SimulatedClient.playDue(clients, boards);
+        if (!progressed) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Ejecutor de partidas que juega líneas al azar hasta llenar el tablero, sin servidor ni clientes. Sirve
+     * para medir el organizador.
+     *
+     * @param executor Ejecutor donde se juega cada partida.
+     * @param seed     Semilla para que la simulación sea repetible.
+     * @return Ejecutor de partidas aleatorias.
+     */
+    private static TournamentScheduler.MatchRunner randomRunner(ExecutorService executor, long seed) {
+        return (match, players) -> CompletableFuture.supplyAsync(() -> {
+            GameRoom room = new GameRoom(match, players.size());
+            Random random = new Random(seed ^ match);
+            while (!room.isFinished()) {
+                int edge = random.nextInt(GameRoom.EDGE_COUNT);
+                while (room.hasEdge(edge)) {
+                    edge = (edge + 1) % GameRoom.EDGE_COUNT;
+                }
+                room.applyMove(room.getCurrentPlayer(), edge);
+            }
+            return new TournamentScheduler.MatchResult(players, room.getScores());
+        }, executor);
+    }
+
+    private static List<TournamentScheduler.Standing> run(TournamentScheduler scheduler, List<String> players, TournamentScheduler.Format format) {
+        return scheduler.run(players, format).orTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS).join();
+    }
+
+    private static List<String> players(int count) {
+        List<String> players = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            players.add("jugador-" + i);
+        }
+        return players;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FALLA: " + name);
+        }
+    }
+}
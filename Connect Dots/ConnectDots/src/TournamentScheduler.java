@@ -0,0 +1,434 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Organiza torneos de "Connect Dots". A partir de una lista de jugadores y un formato (todos contra todos,
+ * suizo o eliminación directa) crea las salas de cada ronda en paralelo sobre un grupo acotado de hilos y
+ * avanza a la siguiente ronda cuando llegan todos los resultados. Ningún hilo queda bloqueado esperando una
+ * partida: cada ronda se encadena con CompletableFuture, así que miles de partidas pueden estar en curso a la vez.
+ *
+ * Cada partida la juega un MatchRunner; GameServer.tournamentRunner sienta a los jugadores inscritos en una sala
+ * del servidor y la da por jugada cuando se llena el tablero. Si una partida falla, el torneo termina con ese
+ * error al cerrar la ronda. Cancelar el futuro que devuelve run detiene el torneo: las partidas en curso
+ * terminan, pero no se empieza ninguna ronda más.
+ */
+public class TournamentScheduler {
+
+    /**
+     * Formatos de torneo soportados.
+     */
+    public enum Format {
+        ROUND_ROBIN, SWISS, SINGLE_ELIMINATION
+    }
+
+    /**
+     * Juega una partida. Se llama desde el grupo de hilos del organizador, que es donde se crea la sala; la
+     * implementación puede ser asíncrona (por ejemplo, esperar a que los jugadores conectados terminen) y
+     * completar el futuro al final.
+     */
+    public interface MatchRunner {
+        /**
+         * @param match   Número de la partida dentro del organizador (empieza en 1).
+         * @param players Jugadores en orden de asiento.
+         * @return Futuro con el resultado de la partida.
+         */
+        CompletableFuture<MatchResult> play(int match, List<String> players);
+    }
+
+    /**
+     * Resultado de una partida del torneo.
+     */
+    public static final class MatchResult {
+        private final List<String> players; // Jugadores en orden de asiento
+        private final int[] scores; // Cuadrados obtenidos por cada jugador
+
+        public MatchResult(List<String> players, int[] scores) {
+            this.players = players;
+            this.scores = scores;
+        }
+
+        public List<String> getPlayers() {
+            return players;
+        }
+
+        public int[] getScores() {
+            return scores;
+        }
+
+        /**
+         * Obtiene el ganador de la partida.
+         *
+         * @return Nombre del ganador o null si hubo empate.
+         */
+        public String getWinner() {
+            int winner = -1;
+            int best = -1;
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] > best) {
+                    best = scores[i];
+                    winner = i;
+                } else if (scores[i] == best) {
+                    winner = -1;
+                }
+            }
+            return winner >= 0 ? players.get(winner) : null;
+        }
+    }
+
+    /**
+     * Posición de un jugador en la tabla del torneo.
+     */
+    public static final class Standing {
+        private final String player; // Nombre del jugador
+        private final int seed; // Orden de inscripción, usado para desempatar
+        private int points; // 2 por victoria, 1 por empate
+        private int wins; // Partidas ganadas
+        private int boxes; // Cuadrados obtenidos en total
+        private int played; // Partidas jugadas
+        private boolean eliminated; // Solo para eliminación directa
+
+        Standing(String player, int seed) {
+            this.player = player;
+            this.seed = seed;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getBoxes() {
+            return boxes;
+        }
+
+        public int getPlayed() {
+            return played;
+        }
+
+        public boolean isEliminated() {
+            return eliminated;
+        }
+
+        @Override
+        public String toString() {
+            return player + " - Puntos " + points + ", Victorias " + wins + ", Cuadrados " + boxes;
+        }
+    }
+
+    private static final Comparator<Standing> RANKING = Comparator.comparingInt((Standing s) -> -s.points)
+            .thenComparingInt(s -> -s.boxes)
+            .thenComparingInt(s -> s.seed);
+
+    private final ExecutorService executor; // Grupo acotado de hilos para crear salas y jugar partidas
+    private final MatchRunner runner; // Ejecuta cada partida
+    private static final AtomicInteger instances = new AtomicInteger(); // Numera los organizadores para sus métricas
+
+    private final AtomicInteger nextMatch = new AtomicInteger(1); // Número de la próxima partida
+    private final LongAdder matchesInFlight = new LongAdder(); // Partidas en curso
+    private final String inflightGauge; // Nombre del medidor de partidas en curso de este organizador
+
+    /**
+     * Crea un organizador con un grupo de hilos acotado. Si la cola se llena, el hilo que envía
+     * la tarea la ejecuta, lo que frena la creación de salas en lugar de acumular memoria.
+     *
+     * @param threads       Cantidad de hilos de trabajo.
+     * @param queueCapacity Tareas que pueden esperar en cola.
+     * @param runner        Ejecuta cada partida.
+     */
+    public TournamentScheduler(int threads, int queueCapacity, MatchRunner runner) {
+        this(new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy()), runner);
+    }
+
+    /**
+     * Crea un organizador sobre un ejecutor existente.
+     *
+     * @param executor Ejecutor donde se crean las salas y se juegan las partidas.
+     * @param runner   Ejecuta cada partida.
+     */
+    public TournamentScheduler(ExecutorService executor, MatchRunner runner) {
+        this.executor = executor;
+        this.runner = runner;
+        this.inflightGauge = "tournament." + instances.incrementAndGet() + ".matches.inflight";
+        ServerMetrics.registerGauge(inflightGauge, matchesInFlight::sum);
+    }
+
+    /**
+     * Inicia un torneo.
+     *
+     * @param players Jugadores inscritos, en orden de siembra.
+     * @param format  Formato del torneo.
+     * @return Futuro que se completa con la tabla final ordenada. Cancelarlo detiene el torneo al cerrar la ronda en curso.
+     */
+    public CompletableFuture<List<Standing>> run(List<String> players, Format format) {
+        if (players.size() < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos 2 jugadores");
+        }
+        Map<String, Standing> table = new LinkedHashMap<>();
+        for (String player : players) {
+            if (table.putIfAbsent(player, new Standing(player, table.size())) != null) {
+                throw new IllegalArgumentException("Jugador repetido: " + player);
+            }
+        }
+        ServerMetrics.increment("tournament.started");
+        Tournament tournament = new Tournament(new ArrayList<>(players), format, table);
+        CompletableFuture<List<Standing>> result = new CompletableFuture<>();
+        playRound(tournament, 0, result).whenComplete((v, error) -> {
+            if (result.isDone()) {
+                return; // Cancelado: la tabla queda a medias
+            }
+            if (error != null) {
+                ServerMetrics.increment("tournament.failed");
+                result.completeExceptionally(error);
+                return;
+            }
+            ServerMetrics.increment("tournament.completed");
+            List<Standing> standings = new ArrayList<>(table.values());
+            standings.sort(format == Format.SINGLE_ELIMINATION
+                    ? Comparator.comparing(Standing::isEliminated).thenComparing(RANKING)
+                    : RANKING);
+            result.complete(standings);
+        });
+        return result;
+    }
+
+    /**
+     * Medidor de partidas en curso de este organizador en ServerMetrics.
+     *
+     * @return Nombre del medidor.
+     */
+    public String getInflightGauge() {
+        return inflightGauge;
+    }
+
+    /**
+     * Detiene el grupo de hilos.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        ServerMetrics.unregisterGauge(inflightGauge);
+    }
+
+    /**
+     * Juega una ronda y, al terminar, encadena la siguiente, salvo que el torneo se haya cancelado.
+     */
+    private CompletableFuture<Void> playRound(Tournament t, int round, CompletableFuture<?> outcome) {
+        if (outcome.isDone()) {
+            ServerMetrics.increment("tournament.cancelled");
+            return CompletableFuture.completedFuture(null); // Cancelado por quien lo inició
+        }
+        List<List<String>> pairings = t.pairings(round);
+        if (pairings == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<MatchResult>> matches = new ArrayList<>(pairings.size());
+        for (List<String> pair : pairings) {
+            matches.add(startMatch(pair));
+        }
+        return CompletableFuture.allOf(matches.toArray(new CompletableFuture<?>[0])).thenCompose(v -> {
+            // Los resultados se registran en un solo hilo, así que la tabla no necesita bloqueo
+            for (CompletableFuture<MatchResult> match : matches) {
+                t.record(match.join());
+            }
+            ServerMetrics.increment("tournament.rounds.completed");
+            return playRound(t, round + 1, outcome);
+        });
+    }
+
+    /**
+     * Entrega la partida al ejecutor de partidas desde el grupo de hilos, donde se crea su sala.
+     */
+    private CompletableFuture<MatchResult> startMatch(List<String> players) {
+        matchesInFlight.increment();
+        ServerMetrics.increment("tournament.matches.started");
+        int match = nextMatch.getAndIncrement();
+        return CompletableFuture
+                .supplyAsync(() -> runner.play(match, players), executor)
+                .thenCompose(Function.identity())
+                .whenComplete((result, error) -> {
+                    matchesInFlight.decrement();
+                    ServerMetrics.increment(error == null ? "tournament.matches.completed" : "tournament.matches.failed");
+                });
+    }
+
+    /**
+     * Estado de un torneo en curso: genera los emparejamientos de cada ronda y acumula resultados.
+     */
+    private static final class Tournament {
+        private final List<String> players;
+        private final Format format;
+        private final Map<String, Standing> table;
+        private final Map<String, Set<String>> opponents = new HashMap<>(); // Rivales ya enfrentados (suizo)
+        private List<String> alive; // Jugadores vivos (eliminación directa)
+
+        Tournament(List<String> players, Format format, Map<String, Standing> table) {
+            this.players = players;
+            this.format = format;
+            this.table = table;
+            this.alive = new ArrayList<>(players);
+            for (String player : players) {
+                opponents.put(player, new HashSet<>());
+            }
+        }
+
+        /**
+         * Genera los emparejamientos de una ronda.
+         *
+         * @return Lista de partidas o null si el torneo terminó.
+         */
+        List<List<String>> pairings(int round) {
+            switch (format) {
+                case ROUND_ROBIN:
+                    return roundRobin(round);
+                case SWISS:
+                    return swiss(round);
+                default:
+                    return elimination();
+            }
+        }
+
+        /**
+         * Método del círculo: el primer jugador queda fijo y el resto rota una posición por ronda.
+         */
+        private List<List<String>> roundRobin(int round) {
+            List<String> circle = new ArrayList<>(players);
+            if (circle.size() % 2 != 0) {
+                circle.add(null); // Descanso
+            }
+            int n = circle.size();
+            if (round >= n - 1) {
+                return null;
+            }
+            List<String> rest = circle.subList(1, n);
+            Collections.rotate(rest, round);
+            List<List<String>> result = new ArrayList<>();
+            for (int i = 0; i < n / 2; i++) {
+                String a = circle.get(i);
+                String b = circle.get(n - 1 - i);
+                if (a != null && b != null) {
+                    result.add(List.of(a, b));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Sistema suizo: se ordena por puntos y se empareja a cada jugador con el siguiente rival
+         * de puntaje parecido que aún no haya enfrentado. Se juegan ceil(log2(n)) rondas.
+         */
+        private List<List<String>> swiss(int round) {
+            int rounds = 32 - Integer.numberOfLeadingZeros(players.size() - 1);
+            if (round >= rounds) {
+                return null;
+            }
+            List<Standing> order = new ArrayList<>(table.values());
+            order.sort(RANKING);
+            List<String> pending = new ArrayList<>(order.size());
+            for (Standing s : order) {
+                pending.add(s.player);
+            }
+            if (pending.size() % 2 != 0) {
+                // El último de la tabla descansa y recibe la victoria
+                String bye = pending.remove(pending.size() - 1);
+                Standing s = table.get(bye);
+                s.points += 2;
+                s.wins++;
+            }
+            List<List<String>> result = new ArrayList<>();
+            while (!pending.isEmpty()) {
+                String a = pending.remove(0);
+                int pick = 0;
+                for (int i = 0; i < pending.size(); i++) {
+                    if (!opponents.get(a).contains(pending.get(i))) {
+                        pick = i;
+                        break;
+                    }
+                }
+                String b = pending.remove(pick);
+                result.add(List.of(a, b));
+            }
+            return result;
+        }
+
+        /**
+         * Eliminación directa: se completa la llave a potencia de dos con descansos para los mejores sembrados.
+         */
+        private List<List<String>> elimination() {
+            if (alive.size() < 2) {
+                return null;
+            }
+            int size = Integer.highestOneBit(alive.size() - 1) << 1;
+            int byes = size - alive.size();
+            List<String> next = new ArrayList<>(alive.subList(0, byes)); // Pasan directo
+            List<String> playing = alive.subList(byes, alive.size());
+            List<List<String>> result = new ArrayList<>();
+            for (int i = 0; i < playing.size() / 2; i++) {
+                result.add(List.of(playing.get(i), playing.get(playing.size() - 1 - i)));
+            }
+            alive = next;
+            return result;
+        }
+
+        /**
+         * Registra el resultado de una partida en la tabla.
+         */
+        void record(MatchResult result) {
+            List<String> matchPlayers = result.getPlayers();
+            String winner = result.getWinner();
+            for (int i = 0; i < matchPlayers.size(); i++) {
+                String player = matchPlayers.get(i);
+                Standing s = table.get(player);
+                s.played++;
+                s.boxes += result.getScores()[i];
+                if (winner == null) {
+                    s.points += 1;
+                } else if (winner.equals(player)) {
+                    s.points += 2;
+                    s.wins++;
+                }
+                for (String other : matchPlayers) {
+                    if (!other.equals(player)) {
+                        opponents.get(player).add(other);
+                    }
+                }
+            }
+            if (format == Format.SINGLE_ELIMINATION) {
+                // En empate avanza el mejor sembrado
+                String advancing = winner;
+                if (advancing == null) {
+                    advancing = table.get(matchPlayers.get(0)).seed < table.get(matchPlayers.get(1)).seed
+                            ? matchPlayers.get(0) : matchPlayers.get(1);
+                }
+                for (String player : matchPlayers) {
+                    if (!player.equals(advancing)) {
+                        table.get(player).eliminated = true;
+                    }
+                }
+                alive.add(advancing);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Compara los transportes del servidor en el mismo equipo: TCP por la interfaz local, socket de dominio Unix
+ * (transport=unix) y, como referencia sin sistema operativo de por medio, los pares en memoria (loopback).
+ *
+ * Cada conexión juega sola en salas de un jugador: espera su color, envía las 24 líneas de una en una y mide el
+ * tiempo hasta que vuelve el eco de cada una; al llenar el tablero se desconecta y entra a otra partida. Las
+ * líneas se preparan antes de medir y las respuestas se leen como bytes, así el cliente gasta poco y la
+ * diferencia entre transportes queda a la vista. Informa latencia de ida y vuelta (p50, p99, máximo),
+ * jugadas por segundo y CPU del proceso (servidor y clientes juntos) por jugada.
+ *
+ * Uso: java TransportBenchmark [partidas por conexión] [conexiones] [tcp,unix,loopback]
+ */
+public class TransportBenchmark {
+    private static final int WARMUP_GAMES = 50; // Partidas por conexión antes de medir
+
+    /**
+     * @param args Partidas por conexión (por defecto 200), conexiones simultáneas (1) y transportes a comparar.
+     * @throws Exception Si no se puede iniciar el servidor.
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        String[] transports = (args.length > 2 ? args[2] : "tcp,unix,loopback").split(",");
+
+        for (String transport : transports) {
+            run(transport.trim(), games, connections);
+        }
+    }
+
+    private static void run(String transport, int games, int connections) throws Exception {
+        Path socketDir = Files.createTempDirectory("connectdots");
+        Properties properties = new Properties();
+        properties.setProperty("port", "0");
+        properties.setProperty("transport", transport);
+        properties.setProperty("socketPath", socketDir.resolve("connectdots.sock").toString());
+        properties.setProperty("defaultPlayers", "1");
+        properties.setProperty("pairingIntervalMs", "1");
+        properties.setProperty("replayDir", "");
+        properties.setProperty("rematch", "false"); // Cada conexión juega una partida y se desconecta
+        properties.setProperty("captureDir", "");
+        properties.setProperty("connectionRatePerSec", "0");
+        properties.setProperty("roomRatePerSec", "0");
+        properties.setProperty("maxConnections", "0");
+        properties.setProperty("maxRooms", "0");
+        ServerConfig config = ServerConfig.fromProperties(properties);
+        GameServer server = new GameServer(config);
+        com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // El servidor anuncia cada conexión y cada resultado
+        Player[] players = new Player[connections];
+        long elapsed, cpu;
+        try {
+            server.start();
+            runAll(players, server, config, WARMUP_GAMES, false);
+            long cpuStart = os.getProcessCpuTime();
+            long start = System.nanoTime();
+            runAll(players, server, config, games, true);
+            elapsed = System.nanoTime() - start;
+            cpu = os.getProcessCpuTime() - cpuStart;
+        } finally {
+            server.stop();
+            System.setOut(console);
+            Files.deleteIfExists(socketDir.resolve("connectdots.sock"));
+            Files.deleteIfExists(socketDir);
+        }
+
+        int failed = 0;
+        long[][] parts = new long[connections][];
+        for (int i = 0; i < connections; i++) {
+            parts[i] = Arrays.copyOf(players[i].rtt, players[i].count);
+            if (players[i].error != null) {
+                failed++;
+            }
+        }
+        long[] all = Arrays.stream(parts).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("Transporte %s: %d conexiones, %d jugadas en %.3f s (%.0f jugadas/s)%n",
+                transport, connections, all.length, elapsed / 1e9, all.length / (elapsed / 1e9));
+        if (all.length > 0) {
+            System.out.printf("  Ida y vuelta (us): p50 %.1f  p99 %.1f  máx %.1f%n",
+                    percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[all.length - 1] / 1e3);
+            System.out.printf("  CPU del proceso por jugada: %.1f us%n", cpu / 1e3 / all.length);
+        }
+        if (failed > 0) {
+            System.out.printf("  FALLA: %d conexiones terminaron con error%n", failed);
+        }
+    }
+
+    /**
+     * Corre una ronda de partidas en todas las conexiones a la vez y espera a que terminen.
+     */
+    private static void runAll(Player[] players, GameServer server, ServerConfig config, int games, boolean measure)
+            throws InterruptedException {
+        Thread[] threads = new Thread[players.length];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(server, config, games, measure);
+            threads[i] = new Thread(players[i], "jugador-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Abre una conexión con el transporte de la configuración.
+     */
+    private static Connection open(GameServer server, ServerConfig config) throws IOException {
+        switch (config.getTransport()) {
+            case "loopback":
+                LoopbackConnection[] pair = LoopbackConnection.pair();
+                server.connect(pair[1]);
+                return pair[0];
+            case "unix":
+                return ChannelConnection.openUnix(Paths.get(config.getSocketPath()));
+            default:
+                return new SocketConnection(new Socket("127.0.0.1", server.getLocalPort()));
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    /**
+     * Conexión que juega partidas completas de un jugador y anota la latencia de cada jugada.
+     */
+    private static final class Player implements Runnable {
+        private final GameServer server;
+        private final ServerConfig config;
+        private final int games;
+        private final long[] rtt; // Latencia de cada jugada en nanosegundos
+        private int count = 0;
+        private Exception error; // Error que cortó las partidas, si hubo
+        private final byte[] buffer = new byte[4096]; // Bytes recibidos
+        private final byte[] line = new byte[4096]; // Última línea leída, sin el salto de línea
+        private int start = 0, end = 0; // Porción de buffer aún sin leer
+
+        Player(GameServer server, ServerConfig config, int games, boolean measure) {
+            this.server = server;
+            this.config = config;
+            this.games = games;
+            this.rtt = new long[measure ? games * GameRoom.EDGE_COUNT : 0];
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int game = 0; game < games; game++) {
+                    play();
+                }
+            } catch (IOException e) {
+                error = e;
+                e.printStackTrace();
+            }
+        }
+
+        private void play() throws IOException {
+            start = end = 0;
+            try (Connection connection = open(server, config)) {
+                InputStream in = connection.getInputStream();
+                MessageWriter out = new MessageWriter(connection.getOutputStream());
+                String color = null;
+                int length;
+                while (color == null && (length = nextLine(in)) >= 0) {
+                    GameData data = GameDataCodec.decode(new String(line, 0, length, StandardCharsets.UTF_8));
+                    if ("color".equals(data.getType())) {
+                        color = data.getColor();
+                    }
+                }
+                if (color == null) {
+                    throw new IOException("El servidor cerró la conexión antes de asignar un color");
+                }
+                byte[][] moves = new byte[GameRoom.EDGE_COUNT][];
+                for (int edge = 0; edge < moves.length; edge++) {
+                    moves[edge] = GameDataCodec.encode(GameData.createLineData(GameRoom.edgeStartX(edge), GameRoom.edgeStartY(edge),
+                            GameRoom.edgeEndX(edge), GameRoom.edgeEndY(edge), color)).getBytes(StandardCharsets.UTF_8);
+                }
+                for (int edge = 0; edge < moves.length; edge++) {
+                    long sent = System.nanoTime();
+                    out.send(moves[edge]);
+                    while (true) {
+                        length = nextLine(in);
+                        if (length < 0) {
+                            throw new IOException("El servidor cerró la conexión a mitad de partida");
+                        }
+                        if (MoveCodec.parseLine(line, length) == edge) {
+                            break;
+                        }
+                    }
+                    if (count < rtt.length) {
+                        rtt[count++] = System.nanoTime() - sent;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Copia a line la próxima línea recibida, leyendo más bytes si hace falta.
+         *
+         * @return Largo de la línea, o -1 si se cerró la conexión.
+         */
+        private int nextLine(InputStream in) throws IOException {
+            int scan = start;
+            while (true) {
+                while (scan < end) {
+                    if (buffer[scan] == '\n') {
+                        int length = scan - start;
+                        System.arraycopy(buffer, start, line, 0, length);
+                        start = scan + 1;
+                        return length;
+                    }
+                    scan++;
+                }
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    scan -= start;
+                    end -= start;
+                    start = 0;
+                }
+                if (end == buffer.length) {
+                    throw new IOException("Línea demasiado larga");
+                }
+                int read = in.read(buffer, end, buffer.length - end);
+                if (read < 0) {
+                    return -1;
+                }
+                end += read;
+            }
+        }
+    }
+}
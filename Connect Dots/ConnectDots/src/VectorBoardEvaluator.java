@@ -0,0 +1,96 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * @author Fabricio Mena, Joseph Murillo, Nathalia Ocampo
+ * Evaluación de un BoardBatch con la API de vectores (jdk.incubator.vector): cada carril del vector es un
+ * tablero, así que cada operación avanza tantos tableros como carriles tenga el procesador (8 con AVX2, 16 con
+ * AVX-512). Solo la usa BoardBatch y solo si el módulo está cargado; compilarla pide
+ * javac --add-modules jdk.incubator.vector.
+ *
+ * En Java 17 no hay conteo de bits por carril, así que los lados de cada cuadrado se suman desplazando la
+ * máscara hasta cada uno de sus cuatro bits. Todo lo que en el escalar es un if pasa a ser una máscara de
+ * carriles, sin saltos que dependan del tablero.
+ */
+final class VectorBoardEvaluator {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int[][] SIDE_BITS = new int[GameRoom.BOX_COUNT][4]; // Posición de los lados de cada cuadrado
+
+    static {
+        for (int box = 0; box < GameRoom.BOX_COUNT; box++) {
+            int mask = GameRoom.boxMask(box);
+            for (int side = 0; side < 4; side++) {
+                SIDE_BITS[box][side] = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+            }
+        }
+    }
+
+    private VectorBoardEvaluator() {
+    }
+
+    /**
+     * @return Tableros que se evalúan por operación.
+     */
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Evalúa todos los tableros del lote. Los que no llenan un vector al final se evalúan con el escalar.
+     *
+     * @param batch Lote a evaluar.
+     */
+    static void evaluate(BoardBatch batch) {
+        int size = batch.size();
+        int bound = SPECIES.loopBound(size);
+        int[] edges = batch.edgesArray();
+        int[] completed = batch.completedArray();
+        int[] legal = batch.legalArray();
+        int[] capture = batch.captureArray();
+        int[] safe = batch.safeArray();
+        int[] sides0 = batch.sidesArray(0);
+        int[] sides1 = batch.sidesArray(1);
+        int[] sides2 = batch.sidesArray(2);
+        int[] sides3 = batch.sidesArray(3);
+        int[] sides4 = batch.sidesArray(4);
+        IntVector zero = IntVector.zero(SPECIES);
+
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            IntVector board = IntVector.fromArray(SPECIES, edges, i);
+            IntVector free = board.not().and(GameRoom.FULL_BOARD);
+            IntVector done = zero, captures = zero, danger = zero;
+            IntVector one = zero, two = zero, three = zero, four = zero; // Histograma de lados
+            for (int box = 0; box < GameRoom.BOX_COUNT; box++) {
+                int[] bits = SIDE_BITS[box];
+                int mask = GameRoom.boxMask(box);
+                IntVector count = board.lanewise(VectorOperators.LSHR, bits[0]).and(1)
+                        .add(board.lanewise(VectorOperators.LSHR, bits[1]).and(1))
+                        .add(board.lanewise(VectorOperators.LSHR, bits[2]).and(1))
+                        .add(board.lanewise(VectorOperators.LSHR, bits[3]).and(1));
+                VectorMask<Integer> closed = count.eq(4);
+                VectorMask<Integer> capturable = count.eq(3);
+                VectorMask<Integer> risky = count.eq(2);
+                done = done.lanewise(VectorOperators.OR, 1 << box, closed);
+                captures = captures.lanewise(VectorOperators.OR, free.and(mask), capturable);
+                danger = danger.lanewise(VectorOperators.OR, mask, risky);
+                one = one.add(1, count.eq(1));
+                two = two.add(1, risky);
+                three = three.add(1, capturable);
+                four = four.add(1, closed);
+            }
+            done.intoArray(completed, i);
+            free.intoArray(legal, i);
+            captures.intoArray(capture, i);
+            free.and(danger.not()).intoArray(safe, i);
+            IntVector.broadcast(SPECIES, GameRoom.BOX_COUNT).sub(one).sub(two).sub(three).sub(four).intoArray(sides0, i);
+            one.intoArray(sides1, i);
+            two.intoArray(sides2, i);
+            three.intoArray(sides3, i);
+            four.intoArray(sides4, i);
+        }
+        batch.evaluateScalar(bound, size);
+    }
+}